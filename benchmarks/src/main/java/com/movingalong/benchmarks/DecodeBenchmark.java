@@ -0,0 +1,155 @@
+package com.movingalong.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.movingalong.codecs.EntityCodecs;
+import com.movingalong.entities.Content;
+import com.movingalong.entities.User;
+
+import dev.morphia.Datastore;
+import dev.morphia.Morphia;
+
+/**
+ * Compares the hand-written codecs with Morphia's reflective ones on the
+ * decode of a typical Content and User document, as read by the DAOs.
+ * The documents are encoded once and decoded from their raw bytes on every
+ * call, so the numbers cover the codec only. No database is needed: the
+ * MongoDB client only connects on its first operation, which never happens.
+ *
+ * <pre>
+ * mvn package && java -jar target/benchmarks.jar DecodeBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecodeBenchmark {
+    private final DecoderContext decoderContext = DecoderContext.builder().build();
+    private MongoClient client;
+    private Codec<Content> handwrittenContent;
+    private Codec<Content> morphiaContent;
+    private Codec<User> handwrittenUser;
+    private Codec<User> morphiaUser;
+    private byte[] content;
+    private byte[] user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        client = MongoClients.create("mongodb://localhost:27017");
+        Datastore datastore = Morphia.createDatastore(client, "benchmarks");
+        datastore.getMapper().map(Content.class, User.class);
+
+        handwrittenContent = EntityCodecs.getCodecRegistry().get(Content.class);
+        morphiaContent = datastore.getCodecRegistry().get(Content.class);
+        handwrittenUser = EntityCodecs.getCodecRegistry().get(User.class);
+        morphiaUser = datastore.getCodecRegistry().get(User.class);
+
+        content = encode(handwrittenContent, sampleContent());
+        user = encode(handwrittenUser, sampleUser());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public Content decodeContentHandwritten() {
+        return decode(handwrittenContent, content);
+    }
+
+    @Benchmark
+    public Content decodeContentMorphia() {
+        return decode(morphiaContent, content);
+    }
+
+    @Benchmark
+    public User decodeUserHandwritten() {
+        return decode(handwrittenUser, user);
+    }
+
+    @Benchmark
+    public User decodeUserMorphia() {
+        return decode(morphiaUser, user);
+    }
+
+    private <T> T decode(Codec<T> codec, byte[] document) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(document))) {
+            return codec.decode(reader, decoderContext);
+        }
+    }
+
+    private static <T> byte[] encode(Codec<T> codec, T value) {
+        try (BasicOutputBuffer buffer = new BasicOutputBuffer()) {
+            codec.encode(new BsonBinaryWriter(buffer), value, EncoderContext.builder().build());
+            return buffer.toByteArray();
+        }
+    }
+
+    private static Content sampleContent() {
+        Content content = new Content();
+        content.setId(new ObjectId());
+        content.setTitle("The Shawshank Redemption");
+        content.setGenre("Drama");
+        content.setDescription("Two imprisoned men bond over a number of years, finding solace and eventual "
+                + "redemption through acts of common decency.");
+        content.setStatus(Content.RELEASED);
+        content.setReleaseDate(LocalDate.of(1994, 9, 23));
+        content.setPhotoURL("https://example.com/photos/shawshank.jpg");
+        content.setAgeRating("R");
+        content.setScoreRating(9);
+        content.setType("Movie");
+        content.setReviews(objectIds(20));
+        content.setCelebrities(objectIds(8));
+        return content;
+    }
+
+    private static User sampleUser() {
+        User user = new User("andy.dufresne", "1948-01-16", "2024-03-01", "andy@example.com",
+                "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z5Qr0F6hYlsYB6v8H0E0Z5zK", "https://example.com/photos/andy.jpg");
+        user.setId(new ObjectId());
+        List<String> reviews = new ArrayList<>();
+        for (ObjectId id : objectIds(10)) {
+            reviews.add(id.toHexString());
+        }
+        user.setReviews(reviews);
+        return user;
+    }
+
+    private static List<ObjectId> objectIds(int count) {
+        List<ObjectId> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(new ObjectId());
+        }
+        return ids;
+    }
+}
@@ -1,33 +1,99 @@
-// package com.movingalong;
-
-// import dev.morphia.Datastore;
-
-// import org.bson.Document;
-// import org.bson.types.ObjectId;
-
-// import com.movingalong.entities.User;
-// import com.movingalong.utils.UtilsDB;
-
-// public class Main {
-//     public static void main(String[] args) {
-//         UtilsDB utilsDB = new UtilsDB();
-//         Datastore datastore = utilsDB.getDatastore();
-//         // datastore.save(user);
-//         Document query = new Document("_id", new ObjectId("65e24d96046d5006c0ff5c37")); 
-//         User user2 = datastore.find(User.class, query).first();
-//         // System.out.println(user2.toString());
-//         // // datastore.delete(user2);
-//         // System.out.println(user2);
-//         // List<User> userList = datastore.find(User.class).iterator().toList();
-//         // userList.stream().forEach(System.out::println);
-//         datastore.delete(user2);
-//         // user2.setEmail("john@hagoo.com");
-//         // datastore.insert(user2);
-//         utilsDB.closeClient();
-//     }
-
-//     private static Object ObjectId(String string) {
-//         // TODO Auto-generated method stub
-//         throw new UnsupportedOperationException("Unimplemented method 'ObjectId'");
-//     }
-// }
\ No newline at end of file
+package com.movingalong;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.movingalong.accounts.UserImporter;
+import com.movingalong.backup.NdjsonTransfer;
+import com.movingalong.utils.UtilsDB;
+
+import dev.morphia.Datastore;
+
+/**
+ * Command line entry point for maintenance tasks run against the database
+ * configured in {@link com.movingalong.utils.AppConfig}.
+ *
+ * <pre>
+ * import-users &lt;file.ndjson&gt; [--batch-size 1000] [--threads N] [--rounds 10] [--checkpoint file]
+ * export &lt;contents|users&gt; &lt;file.ndjson[.gz]&gt;
+ * import &lt;contents|users&gt; &lt;file.ndjson[.gz]&gt;
+ * </pre>
+ */
+public class Main {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || (isTransfer(args[0]) && args.length < 3)) {
+            usage();
+            return;
+        }
+        Map<String, String> options = parseOptions(args, isTransfer(args[0]) ? 3 : 2);
+        UtilsDB utilsDB = new UtilsDB();
+        Datastore datastore = utilsDB.getDatastore();
+        if (datastore == null) {
+            System.err.println("Could not connect to the database");
+            System.exit(1);
+        }
+        try {
+            switch (args[0]) {
+                case "import-users":
+                    importUsers(datastore, Paths.get(args[1]), options);
+                    break;
+                case "export":
+                    try (OutputStream out = Files.newOutputStream(Paths.get(args[2]))) {
+                        new NdjsonTransfer(datastore.getDatabase()).exportCollection(args[1], out,
+                                args[2].endsWith(".gz"));
+                    }
+                    break;
+                case "import":
+                    try (InputStream in = Files.newInputStream(Paths.get(args[2]))) {
+                        new NdjsonTransfer(datastore.getDatabase()).importCollection(args[1], in,
+                                args[2].endsWith(".gz"));
+                    }
+                    break;
+                default:
+                    usage();
+            }
+        } finally {
+            utilsDB.closeClient();
+        }
+    }
+
+    private static void importUsers(Datastore datastore, Path input, Map<String, String> options) throws Exception {
+        int batchSize = Integer.parseInt(options.getOrDefault("batch-size", "1000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "10"));
+        Path checkpoint = Paths.get(options.getOrDefault("checkpoint", input + ".checkpoint"));
+
+        UserImporter importer = new UserImporter(datastore.getDatabase(), batchSize, threads, rounds);
+        importer.importFile(input, checkpoint);
+        System.out.println("Imported " + importer.getImported() + " users, skipped " + importer.getSkipped());
+    }
+
+    private static boolean isTransfer(String command) {
+        return "export".equals(command) || "import".equals(command);
+    }
+
+    private static Map<String, String> parseOptions(String[] args, int from) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = from; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static void usage() {
+        System.err.println("Usage:");
+        System.err.println("  import-users <file.ndjson> [--batch-size 1000] [--threads N] [--rounds 10]"
+                + " [--checkpoint file]");
+        System.err.println("  export <contents|users> <file.ndjson[.gz]>");
+        System.err.println("  import <contents|users> <file.ndjson[.gz]>");
+    }
+}
@@ -0,0 +1,259 @@
+package com.movingalong.accounts;
+
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.types.ObjectId;
+
+import com.movingalong.dao.UserChangeListener;
+import com.movingalong.dao.UserDAO;
+import com.movingalong.entities.User;
+import com.movingalong.helpers.BloomFilter;
+import com.movingalong.utils.AppConfig;
+
+import lombok.Data;
+
+/**
+ * Answers "is this username or email taken?" without querying MongoDB for
+ * values that were never registered.
+ * Usernames and emails are kept in two Bloom filters, loaded with a streaming
+ * scan of the users collection and updated from the writes made through
+ * {@link UserDAO}. A negative answer from a filter is final; a positive one is
+ * confirmed against MongoDB. Deleted values cannot be removed from a Bloom
+ * filter, so the filters are rebuilt periodically, which also resizes them as
+ * the number of users grows.
+ * Users written by other processes, such as other nodes or the bulk importer
+ * run from the command line, are not seen by the listeners. Every
+ * movingalong.availability.catchUpSeconds the users whose ObjectId was created
+ * since the previous catch-up, less a margin for clock skew, are added as
+ * well, so a negative answer is stale for at most that long. Documents
+ * restored elsewhere with their original ObjectIds are only picked up by the
+ * next rebuild.
+ */
+public final class UserAvailability implements UserChangeListener {
+    private static final Logger logger = Logger.getLogger(UserAvailability.class.getName());
+    private static final UserAvailability INSTANCE = new UserAvailability();
+    private static final long CATCH_UP_MARGIN_SECONDS = 60;
+
+    private final double falsePositiveRate;
+    private final long minExpectedUsers;
+    private final long rebuildMinutes;
+    private final long catchUpSeconds;
+    private long catchUpFrom;
+    private volatile Filters filters;
+    private Filters building;
+    private ScheduledExecutorService scheduler;
+    private volatile UserDAO userDao;
+
+    private UserAvailability() {
+        this.falsePositiveRate = AppConfig.getDouble("movingalong.availability.falsePositiveRate", 0.01);
+        this.minExpectedUsers = AppConfig.getLong("movingalong.availability.expectedUsers", 100_000);
+        this.rebuildMinutes = AppConfig.getLong("movingalong.availability.rebuildMinutes", 60);
+        this.catchUpSeconds = AppConfig.getLong("movingalong.availability.catchUpSeconds", 10);
+    }
+
+    public static UserAvailability getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribes to user writes and schedules the periodic rebuild and the
+     * catch-up with other processes. The first rebuild runs immediately unless
+     * the filters were loaded from a snapshot.
+     *
+     * @param userDao The DAO used to scan the users and confirm positives.
+     */
+    public synchronized void start(UserDAO userDao) {
+        if (scheduler != null) {
+            return;
+        }
+        this.userDao = userDao;
+        UserDAO.addChangeListener(this);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-availability-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long initialDelay = filters == null ? 0 : rebuildMinutes;
+        scheduler.scheduleWithFixedDelay(this::rebuild, initialDelay, rebuildMinutes, TimeUnit.MINUTES);
+        scheduler.scheduleWithFixedDelay(this::catchUp, catchUpSeconds, catchUpSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Unsubscribes from user writes and cancels the periodic rebuild and
+     * catch-up.
+     */
+    public synchronized void stop() {
+        UserDAO.removeChangeListener(this);
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Returns the current filters, to be saved in a snapshot.
+     *
+     * @return the filters, or null before the first rebuild.
+     */
+    public FilterState getState() {
+        Filters current = filters;
+        return current == null ? null : new FilterState(current.usernames, current.emails, current.count.get());
+    }
+
+    /**
+     * Serves the filters saved in a snapshot until the next rebuild. The users
+     * written since the snapshot are added by the first catch-up. Must be
+     * called before {@link #start(UserDAO)}.
+     *
+     * @param state   The saved filters.
+     * @param savedAt The time the snapshot was saved.
+     */
+    public synchronized void load(FilterState state, long savedAt) {
+        filters = new Filters(state.getUsernames(), state.getEmails(), state.getCount());
+        catchUpFrom = savedAt;
+    }
+
+    /**
+     * Checks whether a username is free.
+     *
+     * @param username The username to check.
+     * @return true if no User has this username.
+     */
+    public boolean isUsernameAvailable(String username) {
+        Filters current = filters;
+        if (current != null && !current.usernames.mightContain(username)) {
+            return true;
+        }
+        return confirmDao().getUserByUsername(username).isEmpty();
+    }
+
+    /**
+     * Checks whether an email is free.
+     *
+     * @param email The email to check.
+     * @return true if no User has this email.
+     */
+    public boolean isEmailAvailable(String email) {
+        Filters current = filters;
+        if (current != null && !current.emails.mightContain(email)) {
+            return true;
+        }
+        return confirmDao().getUserByEmail(email).isEmpty();
+    }
+
+    /**
+     * Rebuilds both filters from a streaming scan of the users. Users written
+     * during the scan are added to the new filters as well.
+     */
+    void rebuild() {
+        long start = System.currentTimeMillis();
+        catchUpFrom = start;
+        Filters current = filters;
+        long expected = Math.max(minExpectedUsers, current == null ? 0 : current.count.get() * 2);
+        Filters fresh = new Filters(expected, falsePositiveRate);
+        synchronized (this) {
+            building = fresh;
+        }
+        boolean complete = userDao.forEachUsernameAndEmail(fresh::put);
+        synchronized (this) {
+            if (complete) {
+                filters = fresh;
+            }
+            building = null;
+        }
+        logger.log(Level.INFO, "User availability filters rebuilt with " + fresh.count.get() + " users in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Adds the users created or replaced since the previous catch-up or
+     * rebuild, including those written by other processes. Runs on the
+     * scheduler thread, so never concurrently with a rebuild.
+     */
+    void catchUp() {
+        if (filters == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        ObjectId since = new ObjectId(new Date(catchUpFrom - TimeUnit.SECONDS.toMillis(CATCH_UP_MARGIN_SECONDS)));
+        if (userDao.forEachUsernameAndEmailSince(since, this::add)) {
+            catchUpFrom = start;
+        }
+    }
+
+    @Override
+    public void userAdded(User user) {
+        add(user.getUsername(), user.getEmail());
+    }
+
+    @Override
+    public void userUpdated(ObjectId oldId, User user) {
+        add(user.getUsername(), user.getEmail());
+    }
+
+    @Override
+    public void userDeleted(ObjectId id) {
+        // Bloom filters cannot forget values; the next rebuild drops them.
+    }
+
+    private synchronized void add(String username, String email) {
+        if (filters != null) {
+            filters.put(username, email);
+        }
+        if (building != null) {
+            building.put(username, email);
+        }
+    }
+
+    private UserDAO confirmDao() {
+        UserDAO dao = userDao;
+        return dao != null ? dao : new UserDAO();
+    }
+
+    /**
+     * One generation of username and email filters.
+     */
+    private static final class Filters {
+        private final BloomFilter usernames;
+        private final BloomFilter emails;
+        private final AtomicLong count = new AtomicLong();
+
+        Filters(long expectedUsers, double falsePositiveRate) {
+            this(new BloomFilter(expectedUsers, falsePositiveRate), new BloomFilter(expectedUsers, falsePositiveRate),
+                    0);
+        }
+
+        Filters(BloomFilter usernames, BloomFilter emails, long count) {
+            this.usernames = usernames;
+            this.emails = emails;
+            this.count.set(count);
+        }
+
+        void put(String username, String email) {
+            if (username != null) {
+                usernames.put(username);
+            }
+            if (email != null) {
+                emails.put(email);
+            }
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * The username and email filters of one generation, with the number of
+     * users added to them.
+     */
+    @Data
+    public static final class FilterState {
+        private final BloomFilter usernames;
+        private final BloomFilter emails;
+        private final long count;
+    }
+}
@@ -0,0 +1,279 @@
+package com.movingalong.accounts;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.mindrot.jbcrypt.BCrypt;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.bulk.BulkWriteError;
+import com.movingalong.codecs.EntityCodecs;
+import com.movingalong.dao.UserDAO;
+import com.movingalong.entities.User;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import lombok.Data;
+
+/**
+ * Imports users in bulk from a newline-delimited JSON file, one record per line
+ * with the fields of {@link ImportRecord}.
+ * The file is streamed in batches. For each batch, records whose username or
+ * email is already taken (in the database, earlier in the file or earlier in
+ * the batch) are skipped, the remaining passwords are hashed in parallel on a
+ * ForkJoinPool, and the users are written with one unordered insertMany.
+ * After each batch the number of lines consumed is written to a checkpoint
+ * file, so an interrupted import resumes where it stopped; a batch replayed
+ * after a crash is caught by the duplicate checks. The inserted users are
+ * reported to the {@link UserDAO} listeners like any other added user.
+ */
+public class UserImporter {
+    private static final Logger logger = Logger.getLogger(UserImporter.class.getName());
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoCollection<User> users;
+    private final int batchSize;
+    private final int bcryptRounds;
+    private final ForkJoinPool pool;
+    private final Jsonb jsonb = JsonbBuilder.create();
+    private final Set<String> seenUsernames = new HashSet<>();
+    private final Set<String> seenEmails = new HashSet<>();
+
+    private long imported;
+    private long skipped;
+    private long invalid;
+
+    /**
+     * Constructor for UserImporter.
+     *
+     * @param database     The database holding the users collection.
+     * @param batchSize    The number of records processed per batch.
+     * @param threads      The number of threads hashing passwords.
+     * @param bcryptRounds The BCrypt log2 work factor.
+     */
+    public UserImporter(MongoDatabase database, int batchSize, int threads, int bcryptRounds) {
+        this.users = database.getCollection("users", User.class).withCodecRegistry(EntityCodecs.getCodecRegistry());
+        this.batchSize = batchSize;
+        this.bcryptRounds = bcryptRounds;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Imports the given file, resuming from the checkpoint if one exists.
+     *
+     * @param input      The NDJSON file to import.
+     * @param checkpoint The file recording how many lines were consumed.
+     * @throws IOException if the input or the checkpoint cannot be accessed.
+     */
+    public void importFile(Path input, Path checkpoint) throws IOException {
+        long resumeAt = readCheckpoint(checkpoint);
+        long line = 0;
+        long start = System.currentTimeMillis();
+        if (resumeAt > 0) {
+            logger.log(Level.INFO, "Resuming import of " + input + " after line " + resumeAt);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            List<ImportRecord> batch = new ArrayList<>(batchSize);
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (line <= resumeAt || text.trim().isEmpty()) {
+                    continue;
+                }
+                batch.add(parse(text, line));
+                if (batch.size() == batchSize) {
+                    importBatch(batch);
+                    batch.clear();
+                    writeCheckpoint(checkpoint, line);
+                    logProgress(line, start);
+                }
+            }
+            if (!batch.isEmpty()) {
+                importBatch(batch);
+                writeCheckpoint(checkpoint, line);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        logProgress(line, start);
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    private ImportRecord parse(String text, long line) {
+        try {
+            return jsonb.fromJson(text, ImportRecord.class);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Unreadable record on line " + line);
+            return null;
+        }
+    }
+
+    private void importBatch(List<ImportRecord> batch) {
+        List<ImportRecord> valid = new ArrayList<>(batch.size());
+        for (ImportRecord record : batch) {
+            if (record == null || isBlank(record.getUsername()) || isBlank(record.getEmail())
+                    || isBlank(record.getPassword())) {
+                invalid++;
+            } else {
+                valid.add(record);
+            }
+        }
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        findTaken(valid, takenUsernames, takenEmails);
+
+        List<ImportRecord> accepted = new ArrayList<>(valid.size());
+        for (ImportRecord record : valid) {
+            String username = record.getUsername();
+            String email = record.getEmail();
+            if (takenUsernames.contains(username) || takenEmails.contains(email)
+                    || seenUsernames.contains(username) || seenEmails.contains(email)) {
+                skipped++;
+            } else {
+                seenUsernames.add(username);
+                seenEmails.add(email);
+                accepted.add(record);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        List<User> hashed;
+        try {
+            hashed = pool.submit(() -> accepted.parallelStream().map(this::toUser).collect(Collectors.toList()))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+
+        try {
+            users.insertMany(hashed, new InsertManyOptions().ordered(false));
+            imported += hashed.size();
+            UserDAO.notifyUsersAdded(hashed);
+        } catch (MongoBulkWriteException e) {
+            long failed = e.getWriteErrors().size();
+            Set<Integer> failedIndexes = new HashSet<>();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                failedIndexes.add(error.getIndex());
+                if (error.getCode() != DUPLICATE_KEY) {
+                    logger.log(Level.WARNING, "Insert failed: " + error.getMessage());
+                }
+            }
+            imported += hashed.size() - failed;
+            skipped += failed;
+            List<User> inserted = new ArrayList<>(hashed.size());
+            for (int i = 0; i < hashed.size(); i++) {
+                if (!failedIndexes.contains(i)) {
+                    inserted.add(hashed.get(i));
+                }
+            }
+            UserDAO.notifyUsersAdded(inserted);
+        }
+    }
+
+    /**
+     * Collects the usernames and emails of the batch that already exist in the
+     * database, with a single query.
+     */
+    private void findTaken(List<ImportRecord> records, Set<String> takenUsernames, Set<String> takenEmails) {
+        if (records.isEmpty()) {
+            return;
+        }
+        List<String> usernames = new ArrayList<>(records.size());
+        List<String> emails = new ArrayList<>(records.size());
+        for (ImportRecord record : records) {
+            usernames.add(record.getUsername());
+            emails.add(record.getEmail());
+        }
+        try (MongoCursor<Document> cursor = users.withDocumentClass(Document.class)
+                .find(Filters.or(Filters.in("username", usernames), Filters.in("email", emails)))
+                .projection(Projections.include("username", "email")).iterator()) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                String username = document.getString("username");
+                String email = document.getString("email");
+                if (username != null) {
+                    takenUsernames.add(username);
+                }
+                if (email != null) {
+                    takenEmails.add(email);
+                }
+            }
+        }
+    }
+
+    private User toUser(ImportRecord record) {
+        String createdAt = isBlank(record.getCreatedAt()) ? Instant.now().toString() : record.getCreatedAt();
+        return new User(record.getUsername(), record.getDateBirth(), createdAt, record.getEmail(),
+                BCrypt.hashpw(record.getPassword(), BCrypt.gensalt(bcryptRounds)), record.getPhotoURL());
+    }
+
+    private void logProgress(long line, long start) {
+        double seconds = Math.max(1, System.currentTimeMillis() - start) / 1000.0;
+        logger.log(Level.INFO, String.format("Line %d: %d imported, %d skipped as duplicates, %d invalid"
+                + " (%.0f users/s)", line, imported, skipped, invalid, imported / seconds));
+    }
+
+    private static long readCheckpoint(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        String text = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim();
+        return text.isEmpty() ? 0 : Long.parseLong(text);
+    }
+
+    private static void writeCheckpoint(Path checkpoint, long line) throws IOException {
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.write(temp, Long.toString(line).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * One line of the import file. The password is in plain text.
+     */
+    @Data
+    public static class ImportRecord {
+        private String username;
+        private String dateBirth;
+        private String createdAt;
+        private String email;
+        private String password;
+        private String photoURL;
+    }
+}
@@ -0,0 +1,40 @@
+package com.movingalong.assets;
+
+import java.nio.file.Path;
+
+import lombok.Data;
+
+/**
+ * A static file prepared by the {@link AssetPipeline}, with its precompressed
+ * variants.
+ */
+@Data
+public class Asset {
+    /**
+     * The file served without content encoding.
+     */
+    private final Path file;
+
+    /**
+     * The gzip variant, or null if compressing does not pay off.
+     */
+    private final Path gzip;
+
+    /**
+     * The brotli variant, or null if none was generated at build time.
+     */
+    private final Path brotli;
+
+    private final String contentType;
+
+    /**
+     * The hash of the file's content, the base of its ETags.
+     */
+    private final String hash;
+
+    /**
+     * Whether the URL of the asset changes with its content, so that it can be
+     * cached forever.
+     */
+    private final boolean immutable;
+}
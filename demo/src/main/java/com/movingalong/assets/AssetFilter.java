@@ -0,0 +1,162 @@
+package com.movingalong.assets;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.movingalong.utils.AppConfig;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the static files prepared by the {@link AssetPipeline}.
+ * The variant is chosen by Accept-Encoding: brotli, then gzip, then the plain
+ * file. Fingerprinted URLs are cached for a year as immutable; other paths
+ * are revalidated with their ETag, so a repeat page load costs 304s. Files
+ * are sent with sendfile when the container supports it (Tomcat with the NIO
+ * connector), and otherwise with a channel transfer. Requests for anything
+ * else, the REST API included, pass through.
+ */
+public class AssetFilter implements Filter {
+    private static final Logger logger = Logger.getLogger(AssetFilter.class.getName());
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private Map<String, Asset> assets = Collections.emptyMap();
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        if (!AppConfig.getBoolean("movingalong.assets.enabled", true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        ServletContext servletContext = filterConfig.getServletContext();
+        try {
+            Path workDir;
+            Object tempDir = servletContext.getAttribute(ServletContext.TEMPDIR);
+            if (tempDir instanceof File) {
+                workDir = ((File) tempDir).toPath().resolve("assets");
+            } else {
+                workDir = Files.createTempDirectory("movingalong-assets");
+            }
+            assets = new AssetPipeline(servletContext, workDir).run();
+            logger.log(Level.INFO, "Prepared " + assets.size() + " static asset paths in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "Error in init, static files are served by the container", e);
+            assets = Collections.emptyMap();
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+        String method = request.getMethod();
+        Asset asset = null;
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            asset = assets.get(request.getRequestURI().substring(request.getContextPath().length()));
+        }
+        if (asset == null) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        String encoding = null;
+        Path file = asset.getFile();
+        String accepted = request.getHeader("Accept-Encoding");
+        if (asset.getBrotli() != null && accepts(accepted, "br")) {
+            encoding = "br";
+            file = asset.getBrotli();
+        } else if (asset.getGzip() != null && accepts(accepted, "gzip")) {
+            encoding = "gzip";
+            file = asset.getGzip();
+        }
+
+        String etag = "\"" + asset.getHash() + (encoding == null ? "" : "-" + encoding) + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", asset.isImmutable() ? IMMUTABLE : REVALIDATE);
+        if (asset.getGzip() != null || asset.getBrotli() != null) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || "*".equals(ifNoneMatch.trim()))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long length = Files.size(file);
+        response.setContentType(asset.getContentType());
+        if (encoding != null) {
+            response.setHeader("Content-Encoding", encoding);
+        }
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(method)) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < length) {
+                position += channel.transferTo(position, length - position, out);
+            }
+        }
+    }
+
+    /**
+     * Returns whether an Accept-Encoding header accepts a coding, i.e. lists
+     * it without q=0.
+     */
+    static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] params = part.split(";");
+            if (!params[0].trim().equals(coding)) {
+                continue;
+            }
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
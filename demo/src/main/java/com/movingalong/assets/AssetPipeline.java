@@ -0,0 +1,206 @@
+package com.movingalong.assets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import jakarta.servlet.ServletContext;
+
+/**
+ * Prepares the static files of the web application once, when it is deployed.
+ * Every CSS, JavaScript and image file gets a copy whose name contains a hash
+ * of its content (styles.css becomes styles.1a2b3c4d5e.css), the HTML pages
+ * are rewritten to reference these copies, and text files get a gzip variant.
+ * A brotli variant is served when the war ships one next to the file, e.g.
+ * styles.css.br, since the JDK has no brotli encoder.
+ * The original paths stay available, so links from outside the pages and
+ * image URLs stored in the database keep working.
+ */
+public class AssetPipeline {
+    private static final Pattern REFERENCE = Pattern.compile("(href|src)=\"([^\":?#]+)\"");
+    private static final Set<String> COMPRESSIBLE = Set.of("html", "css", "js", "svg", "json", "txt");
+
+    private final ServletContext servletContext;
+    private final Path workDir;
+    private final Map<String, Asset> assets = new HashMap<>();
+    private final Map<String, String> fingerprinted = new HashMap<>();
+
+    /**
+     * Constructor for AssetPipeline.
+     *
+     * @param servletContext The context of the web application.
+     * @param workDir        The directory receiving the generated files.
+     */
+    public AssetPipeline(ServletContext servletContext, Path workDir) {
+        this.servletContext = servletContext;
+        this.workDir = workDir;
+    }
+
+    /**
+     * Processes every static file of the web application.
+     *
+     * @return the assets keyed by the paths they are served at.
+     * @throws IOException if a file cannot be read or written.
+     */
+    public Map<String, Asset> run() throws IOException {
+        List<String> pages = new ArrayList<>();
+        for (String path : listFiles("/")) {
+            if (path.endsWith(".html")) {
+                pages.add(path);
+            } else if (!path.endsWith(".br")) {
+                addFingerprinted(path);
+            }
+        }
+        // Pages last, once every reference they may contain is known
+        for (String page : pages) {
+            addPage(page);
+        }
+        return assets;
+    }
+
+    private void addFingerprinted(String path) throws IOException {
+        Path source = sourceOf(path);
+        String hash;
+        try (InputStream in = Files.newInputStream(source)) {
+            hash = DigestUtils.sha256Hex(in).substring(0, 10);
+        }
+        int dot = path.lastIndexOf('.');
+        String target = dot > path.lastIndexOf('/') ? path.substring(0, dot) + "." + hash + path.substring(dot)
+                : path + "." + hash;
+
+        Path gzip = isCompressible(path) ? gzip(path, Files.readAllBytes(source)) : null;
+        Path brotli = null;
+        if (servletContext.getResource(path + ".br") != null) {
+            brotli = sourceOf(path + ".br");
+        }
+        String contentType = contentTypeOf(path);
+        assets.put(target, new Asset(source, gzip, brotli, contentType, hash, true));
+        assets.put(path, new Asset(source, gzip, brotli, contentType, hash, false));
+        fingerprinted.put(path, target);
+    }
+
+    private void addPage(String path) throws IOException {
+        String html;
+        try (InputStream in = servletContext.getResourceAsStream(path)) {
+            html = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        URI page = URI.create(path);
+        Matcher matcher = REFERENCE.matcher(html);
+        StringBuffer rewritten = new StringBuffer(html.length() + 64);
+        while (matcher.find()) {
+            String reference = matcher.group(2);
+            String target = fingerprinted.get(page.resolve(reference).normalize().toString());
+            String replacement = matcher.group();
+            if (target != null) {
+                int slash = reference.lastIndexOf('/');
+                String name = target.substring(target.lastIndexOf('/') + 1);
+                replacement = matcher.group(1) + "=\"" + reference.substring(0, slash + 1) + name + "\"";
+            }
+            matcher.appendReplacement(rewritten, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(rewritten);
+
+        byte[] bytes = rewritten.toString().getBytes(StandardCharsets.UTF_8);
+        Path file = workDir.resolve(path.substring(1));
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes);
+        Path gzip = gzip(path, bytes);
+        // Pages keep their URLs, so they are revalidated instead of cached
+        assets.put(path, new Asset(file, gzip, null, contentTypeOf(path),
+                DigestUtils.sha256Hex(bytes).substring(0, 10), false));
+    }
+
+    /**
+     * Returns the file of a resource, copying it to the work directory if the
+     * war is not exploded.
+     */
+    private Path sourceOf(String path) throws IOException {
+        String realPath = servletContext.getRealPath(path);
+        if (realPath != null && Files.isRegularFile(Paths.get(realPath))) {
+            return Paths.get(realPath);
+        }
+        Path copy = workDir.resolve(path.substring(1));
+        Files.createDirectories(copy.getParent());
+        try (InputStream in = servletContext.getResourceAsStream(path)) {
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return copy;
+    }
+
+    /**
+     * Writes the gzip variant of a file.
+     *
+     * @return the variant, or null if it is not smaller than the original.
+     */
+    private Path gzip(String path, byte[] content) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length / 2 + 64);
+        try (OutputStream out = new GZIPOutputStream(buffer) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        }
+        if (buffer.size() >= content.length) {
+            return null;
+        }
+        Path file = workDir.resolve(path.substring(1) + ".gz");
+        Files.createDirectories(file.getParent());
+        Files.write(file, buffer.toByteArray());
+        return file;
+    }
+
+    private Set<String> listFiles(String dir) {
+        Set<String> files = new TreeSet<>();
+        Set<String> paths = servletContext.getResourcePaths(dir);
+        if (paths == null) {
+            return files;
+        }
+        for (String path : paths) {
+            String name = path.substring(path.lastIndexOf('/', path.length() - 2) + 1);
+            if (name.startsWith(".") || path.startsWith("/WEB-INF/") || path.startsWith("/META-INF/")) {
+                continue;
+            }
+            if (path.endsWith("/")) {
+                files.addAll(listFiles(path));
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    private String contentTypeOf(String path) {
+        String contentType = servletContext.getMimeType(path);
+        if (contentType == null) {
+            return "application/octet-stream";
+        }
+        if ((contentType.startsWith("text/") || contentType.endsWith("javascript")) && !contentType.contains(";")) {
+            return contentType + ";charset=UTF-8";
+        }
+        return contentType;
+    }
+
+    private static boolean isCompressible(String path) {
+        return COMPRESSIBLE.contains(path.substring(path.lastIndexOf('.') + 1));
+    }
+}
@@ -0,0 +1,287 @@
+package com.movingalong.backup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import com.movingalong.codecs.ContentCodec;
+import com.movingalong.dao.ContentDAO;
+import com.movingalong.dao.UserDAO;
+import com.movingalong.entities.Content;
+import com.movingalong.entities.User;
+import com.movingalong.utils.AppConfig;
+
+/**
+ * Streams the "contents" and "users" collections to and from gzip-compressed
+ * newline-delimited JSON, one document per line in MongoDB Extended JSON so
+ * every BSON type round-trips.
+ * Exports read through a cursor and write through fixed size buffers. Imports
+ * decode batches of lines in parallel, with a bounded number of batches in
+ * flight, and write each batch with one unordered bulk upsert keyed on _id, so
+ * replaying an import is harmless. Memory use therefore depends on the batch
+ * size, never on the size of the collection. Imported documents are reported
+ * to the {@link ContentDAO} or {@link UserDAO} listeners.
+ */
+public class NdjsonTransfer {
+    private static final Logger logger = Logger.getLogger(NdjsonTransfer.class.getName());
+    private static final List<String> COLLECTIONS = Collections.unmodifiableList(Arrays.asList("contents", "users"));
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.EXTENDED).build();
+
+    private final MongoDatabase database;
+    private final int batchSize;
+    private final int threads;
+
+    /**
+     * Constructor for NdjsonTransfer.
+     *
+     * @param database The database holding the collections.
+     */
+    public NdjsonTransfer(MongoDatabase database) {
+        this.database = database;
+        this.batchSize = AppConfig.getInt("movingalong.transfer.batchSize", 1000);
+        this.threads = AppConfig.getInt("movingalong.transfer.threads", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns true if the collection may be exported and imported.
+     *
+     * @param collection The name of the collection.
+     */
+    public static boolean isTransferable(String collection) {
+        return COLLECTIONS.contains(collection);
+    }
+
+    /**
+     * Writes every document of a collection to the stream.
+     *
+     * @param collection The name of the collection to export.
+     * @param out        The stream to write to; it is not closed.
+     * @param gzip       Whether to gzip the output.
+     * @return the number of documents written.
+     * @throws IOException if writing fails.
+     */
+    public long exportCollection(String collection, OutputStream out, boolean gzip) throws IOException {
+        requireTransferable(collection);
+        long start = System.currentTimeMillis();
+        long count = 0;
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(gzip ? compressed : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        try (MongoCursor<RawBsonDocument> cursor = database.getCollection(collection, RawBsonDocument.class).find()
+                .batchSize(batchSize).iterator()) {
+            while (cursor.hasNext()) {
+                writer.write(cursor.next().toJson(JSON_SETTINGS));
+                writer.write('\n');
+                count++;
+            }
+        }
+        writer.flush();
+        if (compressed != null) {
+            compressed.finish();
+        }
+        logThroughput("Exported", collection, count, start);
+        return count;
+    }
+
+    /**
+     * Reads documents from the stream and upserts them into a collection.
+     *
+     * @param collection The name of the collection to import into.
+     * @param in         The stream to read from; it is not closed.
+     * @param gzip       Whether the input is gzipped.
+     * @return the number of documents written.
+     * @throws IOException if reading fails.
+     */
+    public long importCollection(String collection, InputStream in, boolean gzip) throws IOException {
+        requireTransferable(collection);
+        long start = System.currentTimeMillis();
+        long count = 0;
+        MongoCollection<BsonDocument> target = database.getCollection(collection, BsonDocument.class);
+        Consumer<List<BsonDocument>> notification = "users".equals(collection) ? NdjsonTransfer::notifyUsers
+                : NdjsonTransfer::notifyContents;
+        // Restored contents change in place, so reconciling snapshots find them by this stamp
+        BsonDateTime stamp = "contents".equals(collection) ? new BsonDateTime(System.currentTimeMillis()) : null;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                gzip ? new GZIPInputStream(in, BUFFER_SIZE) : in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        ExecutorService decoders = Executors.newFixedThreadPool(threads);
+        Deque<Future<List<WriteModel<BsonDocument>>>> pending = new ArrayDeque<>();
+        try {
+            List<String> lines = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == batchSize) {
+                    List<String> batch = lines;
+                    pending.add(decoders.submit(() -> decode(batch, stamp)));
+                    lines = new ArrayList<>(batchSize);
+                    if (pending.size() > threads) {
+                        count += write(target, pending.poll(), notification);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                List<String> batch = lines;
+                pending.add(decoders.submit(() -> decode(batch, stamp)));
+            }
+            while (!pending.isEmpty()) {
+                count += write(target, pending.poll(), notification);
+            }
+        } finally {
+            decoders.shutdownNow();
+        }
+        logThroughput("Imported", collection, count, start);
+        return count;
+    }
+
+    private static List<WriteModel<BsonDocument>> decode(List<String> lines, BsonDateTime stamp) {
+        List<WriteModel<BsonDocument>> models = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            BsonDocument document = BsonDocument.parse(line);
+            if (stamp != null) {
+                document.put(ContentDAO.UPDATED_AT, stamp);
+            }
+            if (document.containsKey("_id")) {
+                models.add(new ReplaceOneModel<>(Filters.eq("_id", document.get("_id")), document,
+                        new ReplaceOptions().upsert(true)));
+            } else {
+                models.add(new InsertOneModel<>(document));
+            }
+        }
+        return models;
+    }
+
+    private static long write(MongoCollection<BsonDocument> target, Future<List<WriteModel<BsonDocument>>> batch,
+            Consumer<List<BsonDocument>> notification) throws IOException {
+        List<WriteModel<BsonDocument>> models;
+        try {
+            models = batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Invalid document in import", e.getCause());
+        }
+        Set<Integer> rejected = new HashSet<>();
+        try {
+            target.bulkWrite(models, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            logger.log(Level.WARNING, e.getWriteErrors().size() + " documents of a batch were rejected", e);
+            for (BulkWriteError error : e.getWriteErrors()) {
+                rejected.add(error.getIndex());
+            }
+        }
+        List<BsonDocument> written = new ArrayList<>(models.size() - rejected.size());
+        for (int i = 0; i < models.size(); i++) {
+            if (!rejected.contains(i)) {
+                written.add(documentOf(models.get(i)));
+            }
+        }
+        notification.accept(written);
+        return written.size();
+    }
+
+    private static BsonDocument documentOf(WriteModel<BsonDocument> model) {
+        if (model instanceof ReplaceOneModel) {
+            return ((ReplaceOneModel<BsonDocument>) model).getReplacement();
+        }
+        return ((InsertOneModel<BsonDocument>) model).getDocument();
+    }
+
+    /**
+     * Reports the Content items written by an import to the {@link ContentDAO}
+     * listeners, so caches and derived structures drop their old versions.
+     */
+    private static void notifyContents(List<BsonDocument> documents) {
+        ContentCodec codec = new ContentCodec();
+        List<Content> contents = new ArrayList<>(documents.size());
+        for (BsonDocument document : documents) {
+            try {
+                contents.add(codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build()));
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Imported content " + document.get("_id") + " could not be decoded", e);
+            }
+        }
+        ContentDAO.notifyContentsReplaced(contents);
+    }
+
+    /**
+     * Reports the users written by an import to the {@link UserDAO} listeners,
+     * with the fields they derive state from.
+     */
+    private static void notifyUsers(List<BsonDocument> documents) {
+        List<User> users = new ArrayList<>(documents.size());
+        for (BsonDocument document : documents) {
+            User user = new User();
+            if (document.isObjectId("_id")) {
+                user.setId(document.getObjectId("_id").getValue());
+            }
+            if (document.isString("username")) {
+                user.setUsername(document.getString("username").getValue());
+            }
+            if (document.isString("email")) {
+                user.setEmail(document.getString("email").getValue());
+            }
+            users.add(user);
+        }
+        UserDAO.notifyUsersReplaced(users);
+    }
+
+    private static void requireTransferable(String collection) {
+        if (!isTransferable(collection)) {
+            throw new IllegalArgumentException("Collection cannot be transferred: " + collection);
+        }
+    }
+
+    private static void logThroughput(String action, String collection, long count, long start) {
+        double seconds = Math.max(1, System.currentTimeMillis() - start) / 1000.0;
+        logger.log(Level.INFO, String.format("%s %d documents of %s in %.1f s (%.0f docs/s)", action, count,
+                collection, seconds, count / seconds));
+    }
+}
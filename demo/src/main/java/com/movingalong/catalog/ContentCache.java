@@ -0,0 +1,163 @@
+package com.movingalong.catalog;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.types.ObjectId;
+
+import com.movingalong.dao.ContentChangeListener;
+import com.movingalong.dao.ContentDAO;
+import com.movingalong.entities.Content;
+import com.movingalong.utils.AppConfig;
+
+/**
+ * Bounded, expiring cache of the Content items read by ID, i.e. the hot part
+ * of the catalog.
+ * Entries are invalidated by the writes made through {@link ContentDAO} on
+ * this node and expire after movingalong.cache.ttlSeconds to bound staleness
+ * from writes made on other nodes. When full, arbitrary entries are evicted,
+ * which keeps puts lock-free at the cost of an exact LRU order. The cache is
+ * off unless movingalong.cache.enabled is set, since reads may then be up to
+ * ttlSeconds stale on multi-node deployments, and inactive until
+ * {@link #start()} is called.
+ */
+public final class ContentCache implements ContentChangeListener {
+    private static final ContentCache INSTANCE = new ContentCache();
+
+    private final ConcurrentHashMap<ObjectId, Entry> entries = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private volatile boolean started;
+
+    private ContentCache() {
+        this.enabled = AppConfig.getBoolean("movingalong.cache.enabled", false);
+        this.maxEntries = AppConfig.getInt("movingalong.cache.maxEntries", 10_000);
+        this.ttlMillis = AppConfig.getLong("movingalong.cache.ttlSeconds", 300) * 1000;
+    }
+
+    public static ContentCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Activates the cache, if enabled, and subscribes to content writes.
+     */
+    public synchronized void start() {
+        if (enabled && !started) {
+            ContentDAO.addChangeListener(this);
+            started = true;
+        }
+    }
+
+    /**
+     * Deactivates and empties the cache.
+     */
+    public synchronized void stop() {
+        ContentDAO.removeChangeListener(this);
+        started = false;
+        entries.clear();
+    }
+
+    /**
+     * Returns the cached Content item, if present and fresh.
+     *
+     * @param id The ObjectId of the Content item.
+     * @return the cached Content, or null on a miss.
+     */
+    public Content get(ObjectId id) {
+        if (!started) {
+            return null;
+        }
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+            entries.remove(id, entry);
+            return null;
+        }
+        return entry.content;
+    }
+
+    /**
+     * Caches a Content item read from the database.
+     *
+     * @param content The Content item, with its ObjectId set.
+     */
+    public void put(Content content) {
+        if (!started || content.getId() == null) {
+            return;
+        }
+        entries.put(content.getId(), new Entry(content, System.currentTimeMillis()));
+        if (entries.size() > maxEntries) {
+            Iterator<ObjectId> it = entries.keySet().iterator();
+            while (entries.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Replaces a cached Content item with a fresher version read from the
+     * database, and restarts its expiry. Items not cached are left out.
+     *
+     * @param content The Content item, with its ObjectId set.
+     */
+    public void refresh(Content content) {
+        if (content.getId() != null) {
+            entries.computeIfPresent(content.getId(), (id, entry) -> new Entry(content, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Drops a Content item from the cache.
+     *
+     * @param id The ObjectId of the Content item.
+     */
+    public void invalidate(ObjectId id) {
+        entries.remove(id);
+    }
+
+    /**
+     * Returns a copy of the cached Content items.
+     */
+    List<Content> contents() {
+        List<Content> contents = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            contents.add(entry.content);
+        }
+        return contents;
+    }
+
+    @Override
+    public void contentAdded(Content content) {
+        // Nothing cached yet; the item is cached on its first read.
+    }
+
+    @Override
+    public void contentUpdated(ObjectId oldId, Content content) {
+        invalidate(oldId);
+        if (content.getId() != null) {
+            invalidate(content.getId());
+        }
+    }
+
+    @Override
+    public void contentDeleted(ObjectId id) {
+        invalidate(id);
+    }
+
+    private static final class Entry {
+        private final Content content;
+        private final long loadedAt;
+
+        Entry(Content content, long loadedAt) {
+            this.content = content;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
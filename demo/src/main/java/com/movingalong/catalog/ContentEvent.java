@@ -0,0 +1,25 @@
+package com.movingalong.catalog;
+
+import lombok.Data;
+
+/**
+ * The data of a catalog change sent to the subscribers of
+ * /rest/content/events.
+ */
+@Data
+public class ContentEvent {
+    /**
+     * The hex ID of the Content item after the change.
+     */
+    private final String id;
+
+    /**
+     * The hex ID the item had before an update, which assigns a new one.
+     */
+    private final String previousId;
+
+    /**
+     * The item after the change, or null for a deletion.
+     */
+    private final RankedContent content;
+}
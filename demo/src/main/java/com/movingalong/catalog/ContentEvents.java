@@ -0,0 +1,409 @@
+package com.movingalong.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.types.ObjectId;
+
+import com.movingalong.dao.ContentChangeListener;
+import com.movingalong.dao.ContentDAO;
+import com.movingalong.entities.Content;
+import com.movingalong.utils.AppConfig;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+/**
+ * Broadcasts the writes made through {@link ContentDAO} to Server-Sent Events
+ * subscribers as "contentAdded", "contentUpdated" and "contentDeleted" events.
+ * Each event is serialized once and queued to every subscriber without
+ * blocking the writer; a small pool of sender threads drains the queues.
+ * Sends are asynchronous: a subscriber whose connection is not accepting data
+ * holds no thread, the next send being chained on the completion of the
+ * previous one. A subscriber whose queue is full is too slow to keep up and is
+ * disconnected, so it can reconnect and catch up; its connection is closed on
+ * a sender thread rather than on the writer's. The last events are kept in
+ * a ring buffer and replayed to a subscriber reconnecting with Last-Event-ID;
+ * if the events it missed are no longer there, or were emitted before a
+ * restart, it gets a "reset" event telling it to reload instead.
+ */
+public final class ContentEvents implements ContentChangeListener {
+    private static final Logger logger = Logger.getLogger(ContentEvents.class.getName());
+    private static final ContentEvents INSTANCE = new ContentEvents();
+    private static final Jsonb jsonb = JsonbBuilder.create();
+
+    private final int clientBuffer;
+    private final int maxClients;
+    private final long keepAliveSeconds;
+    private final int senderThreads;
+    private final String epoch;
+    private final Event[] ring;
+    private long sequence;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private volatile Sse sse;
+    private ExecutorService senders;
+    private ScheduledExecutorService keepAlive;
+
+    private ContentEvents() {
+        this(Long.toString(System.currentTimeMillis(), 36), AppConfig.getInt("movingalong.events.replaySize", 1000),
+                AppConfig.getInt("movingalong.events.clientBuffer", 256));
+    }
+
+    /**
+     * Constructor for ContentEvents, used directly by tests.
+     *
+     * @param epoch        The prefix of the event IDs, which changes on restart.
+     * @param replaySize   The number of events kept for replay.
+     * @param clientBuffer The number of events queued per subscriber.
+     */
+    ContentEvents(String epoch, int replaySize, int clientBuffer) {
+        this.epoch = epoch;
+        this.ring = new Event[replaySize];
+        this.clientBuffer = clientBuffer;
+        this.maxClients = AppConfig.getInt("movingalong.events.maxClients", 10_000);
+        this.keepAliveSeconds = AppConfig.getLong("movingalong.events.keepAliveSeconds", 30);
+        this.senderThreads = AppConfig.getInt("movingalong.events.senderThreads", 4);
+    }
+
+    public static ContentEvents getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribes to content writes and starts the sender threads.
+     */
+    public synchronized void start() {
+        if (senders != null) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "content-events-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        keepAlive = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-events-keepalive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        keepAlive.scheduleWithFixedDelay(this::sendKeepAlive, keepAliveSeconds, keepAliveSeconds, TimeUnit.SECONDS);
+        ContentDAO.addChangeListener(this);
+    }
+
+    /**
+     * Unsubscribes from content writes and disconnects every subscriber.
+     */
+    public synchronized void stop() {
+        ContentDAO.removeChangeListener(this);
+        if (senders != null) {
+            keepAlive.shutdownNow();
+            senders.shutdownNow();
+            senders = null;
+            keepAlive = null;
+        }
+        for (Subscriber subscriber : subscribers) {
+            disconnect(subscriber);
+        }
+    }
+
+    /**
+     * Registers a subscriber and queues the events it missed.
+     *
+     * @param sink        The sink of the subscriber's connection.
+     * @param sse         The factory of outbound events.
+     * @param lastEventId The Last-Event-ID header, or null on a first
+     *                    connection.
+     * @return false if the subscriber was turned away because the feed is not
+     *         running or has too many subscribers.
+     */
+    public boolean subscribe(SseEventSink sink, Sse sse, String lastEventId) {
+        if (subscribers.size() >= maxClients) {
+            return false;
+        }
+        this.sse = sse;
+        Subscriber subscriber = new Subscriber(sink, clientBuffer);
+        synchronized (this) {
+            if (senders == null) {
+                return false;
+            }
+            if (lastEventId != null) {
+                missedSince(lastEventId).forEach(subscriber.queue::offer);
+            }
+            subscribers.add(subscriber);
+        }
+        schedule(subscriber);
+        return true;
+    }
+
+    /**
+     * Returns the number of connected subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Returns the number of subscribers disconnected for being too slow.
+     */
+    public int getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void contentAdded(Content content) {
+        if (content.getId() != null) {
+            publish("contentAdded", new ContentEvent(content.getId().toHexString(), null, new RankedContent(content)));
+        }
+    }
+
+    @Override
+    public void contentUpdated(ObjectId oldId, Content content) {
+        if (content.getId() != null) {
+            publish("contentUpdated", new ContentEvent(content.getId().toHexString(), oldId.toHexString(),
+                    new RankedContent(content)));
+        }
+    }
+
+    @Override
+    public void contentDeleted(ObjectId id) {
+        publish("contentDeleted", new ContentEvent(id.toHexString(), null, null));
+    }
+
+    private void publish(String name, ContentEvent data) {
+        String json = jsonb.toJson(data);
+        synchronized (this) {
+            long seq = ++sequence;
+            Event event = new Event(epoch + "-" + seq, name, json);
+            ring[(int) (seq % ring.length)] = event;
+            for (Subscriber subscriber : subscribers) {
+                offer(subscriber, event);
+            }
+        }
+    }
+
+    /**
+     * Returns the events a subscriber reconnecting with the given
+     * Last-Event-ID missed, or a reset event if they cannot be replayed.
+     * Called with the lock held.
+     */
+    List<Event> missedSince(String lastEventId) {
+        long last = -1;
+        int dash = lastEventId.lastIndexOf('-');
+        if (dash > 0 && lastEventId.substring(0, dash).equals(epoch)) {
+            try {
+                last = Long.parseLong(lastEventId.substring(dash + 1));
+            } catch (NumberFormatException e) {
+                last = -1;
+            }
+        }
+        long missed = sequence - last;
+        if (last < 0 || missed < 0 || missed > ring.length || missed > clientBuffer) {
+            return List.of(new Event(null, "reset", "{}"));
+        }
+        List<Event> events = new ArrayList<>((int) missed);
+        for (long seq = last + 1; seq <= sequence; seq++) {
+            events.add(ring[(int) (seq % ring.length)]);
+        }
+        return events;
+    }
+
+    private void offer(Subscriber subscriber, Event event) {
+        if (subscriber.queue.offer(event)) {
+            schedule(subscriber);
+        } else {
+            dropped.incrementAndGet();
+            disconnect(subscriber);
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        ExecutorService executor = senders;
+        if (executor != null && subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Sends the queued events of a subscriber until its queue is empty or a
+     * send does not complete right away, in which case draining resumes on a
+     * sender thread once it does. The scheduled flag stays set meanwhile, so
+     * that a subscriber never has two sends in flight.
+     */
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            Event event = subscriber.queue.poll();
+            if (event == null) {
+                subscriber.scheduled.set(false);
+                // An event may have been queued after the poll and before the flag was cleared
+                if (!subscriber.queue.isEmpty()) {
+                    schedule(subscriber);
+                }
+                return;
+            }
+            if (subscriber.sink.isClosed()) {
+                subscriber.scheduled.set(false);
+                disconnect(subscriber);
+                return;
+            }
+            CompletableFuture<?> sent;
+            try {
+                sent = subscriber.sink.send(event.toOutbound(sse)).toCompletableFuture();
+            } catch (RuntimeException e) {
+                dropSubscriber(subscriber, e);
+                return;
+            }
+            if (!sent.isDone()) {
+                sent.whenComplete((result, error) -> {
+                    if (error != null) {
+                        dropSubscriber(subscriber, error);
+                    } else {
+                        resume(subscriber);
+                    }
+                });
+                return;
+            }
+            if (sent.isCompletedExceptionally()) {
+                dropSubscriber(subscriber, null);
+                return;
+            }
+        }
+    }
+
+    private void resume(Subscriber subscriber) {
+        ExecutorService executor = senders;
+        if (executor == null) {
+            subscriber.scheduled.set(false);
+            return;
+        }
+        try {
+            executor.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.scheduled.set(false);
+        }
+    }
+
+    private void dropSubscriber(Subscriber subscriber, Throwable error) {
+        logger.log(Level.FINE, "Dropping event subscriber", error);
+        subscriber.scheduled.set(false);
+        disconnect(subscriber);
+    }
+
+    private void sendKeepAlive() {
+        Event comment = new Event(null, null, null);
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sink.isClosed()) {
+                disconnect(subscriber);
+            } else {
+                offer(subscriber, comment);
+            }
+        }
+    }
+
+    /**
+     * Forgets a subscriber and closes its connection, on a sender thread when
+     * they are running since the caller may be a writer holding the lock.
+     */
+    private void disconnect(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        subscriber.queue.clear();
+        ExecutorService executor = senders;
+        if (executor != null) {
+            try {
+                executor.execute(() -> close(subscriber));
+                return;
+            } catch (RejectedExecutionException e) {
+                // Shutting down, close it here
+            }
+        }
+        close(subscriber);
+    }
+
+    private static void close(Subscriber subscriber) {
+        try {
+            subscriber.sink.close();
+        } catch (RuntimeException e) {
+            logger.log(Level.FINE, "Error closing event subscriber", e);
+        }
+    }
+
+    /**
+     * An event as kept in the ring buffer. The outbound event is built once,
+     * on first send, and shared by every subscriber.
+     */
+    static final class Event {
+        private final String id;
+        private final String name;
+        private final String json;
+        private volatile OutboundSseEvent outbound;
+
+        Event(String id, String name, String json) {
+            this.id = id;
+            this.name = name;
+            this.json = json;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        OutboundSseEvent toOutbound(Sse sse) {
+            OutboundSseEvent built = outbound;
+            if (built == null) {
+                if (name == null) {
+                    built = sse.newEventBuilder().comment("keep-alive").build();
+                } else {
+                    OutboundSseEvent.Builder builder = sse.newEventBuilder()
+                            .name(name)
+                            .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                            .data(String.class, json);
+                    if (id != null) {
+                        builder.id(id);
+                    }
+                    built = builder.build();
+                }
+                outbound = built;
+            }
+            return built;
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEventSink sink;
+        private final ArrayBlockingQueue<Event> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Subscriber(SseEventSink sink, int capacity) {
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
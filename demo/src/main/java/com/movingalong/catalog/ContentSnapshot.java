@@ -0,0 +1,344 @@
+package com.movingalong.catalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+
+import com.movingalong.accounts.UserAvailability;
+import com.movingalong.codecs.ContentCodec;
+import com.movingalong.dao.ContentDAO;
+import com.movingalong.entities.Content;
+import com.movingalong.helpers.BloomFilter;
+import com.movingalong.utils.AppConfig;
+
+/**
+ * Persists the in-memory content structures to local disk so a restarted node
+ * serves warm traffic within seconds instead of rebuilding everything from
+ * MongoDB.
+ * The snapshot holds the Content items of the {@link ContentCache}, the ranked
+ * items of the {@link Leaderboards} and the catalog indexed by
+ * {@link SimilarTitles}, reduced to the fields it and {@link FuzzyTitles} are
+ * built from, each encoded as a BSON document with the hand-written codec, and
+ * the bits of the {@link UserAvailability} filters. It is written on shutdown
+ * and periodically, through a temporary file and an atomic rename, and
+ * memory-mapped on startup; the structures loaded from it delay their first
+ * rebuild by a full period.
+ * After loading, a background task reconciles with MongoDB from the
+ * snapshot's watermark: items created, replaced or changed in place since
+ * then are applied to every structure, and the loaded ObjectIds that no
+ * longer exist, checked against the _id index only, are dropped. Users
+ * created since then are added by the first availability catch-up.
+ *
+ * <pre>
+ * int magic, int version, long savedAt,
+ * int cacheCount, cacheCount BSON documents,
+ * int rankedCount, rankedCount BSON documents,
+ * int catalogCount, catalogCount BSON documents,
+ * long userCount, or -1 and nothing else if there are no filters,
+ * int hashCount, int wordCount, wordCount longs for the usernames,
+ * int hashCount, int wordCount, wordCount longs for the emails
+ * </pre>
+ */
+public final class ContentSnapshot {
+    private static final Logger logger = Logger.getLogger(ContentSnapshot.class.getName());
+    private static final int MAGIC = 0x4D564153;
+    private static final int VERSION = 2;
+
+    /**
+     * ObjectIds are generated from each client's clock, so the watermark is
+     * moved back by this margin to tolerate skew between nodes.
+     */
+    private static final long WATERMARK_MARGIN_MILLIS = 5 * 60_000;
+
+    private final Path path;
+    private final long intervalMinutes;
+    private final ContentCodec codec = new ContentCodec();
+    private final Object saveLock = new Object();
+    private long savedAt;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor for ContentSnapshot.
+     * The file location comes from movingalong.snapshot.path.
+     */
+    public ContentSnapshot() {
+        this.path = Paths.get(AppConfig.getString("movingalong.snapshot.path",
+                Paths.get(System.getProperty("java.io.tmpdir"), "movingalong-content.snapshot").toString()));
+        this.intervalMinutes = AppConfig.getLong("movingalong.snapshot.intervalMinutes", 5);
+    }
+
+    /**
+     * Reconciles the loaded snapshot with MongoDB in the background and
+     * schedules the periodic save. Called once the services are started, so
+     * that they receive the changes.
+     *
+     * @param contentDao The DAO used for reconciliation.
+     */
+    public synchronized void start(ContentDAO contentDao) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long loadedAt = savedAt;
+        scheduler.execute(() -> {
+            contentDao.ensureUpdatedAtIndex();
+            if (loadedAt > 0) {
+                reconcile(contentDao, loadedAt);
+            }
+        });
+        scheduler.scheduleWithFixedDelay(this::save, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Cancels the periodic save, waits for a running one to finish and writes a
+     * final snapshot.
+     */
+    public void stop() {
+        ScheduledExecutorService stopped;
+        synchronized (this) {
+            stopped = scheduler;
+            scheduler = null;
+        }
+        if (stopped != null) {
+            stopped.shutdownNow();
+            try {
+                stopped.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        save();
+    }
+
+    /**
+     * Writes the current structures to disk, or deletes the snapshot if they
+     * are all empty, so that a stale one is never loaded. Saves are
+     * serialized, as they share the temporary file.
+     */
+    void save() {
+        synchronized (saveLock) {
+            write();
+        }
+    }
+
+    private void write() {
+        long start = System.currentTimeMillis();
+        List<Content> cached = ContentCache.getInstance().contents();
+        List<RankedContent> ranked = Leaderboards.getInstance().entries();
+        List<Content> catalog = SimilarTitles.getInstance().contents();
+        UserAvailability.FilterState users = UserAvailability.getInstance().getState();
+        if (cached.isEmpty() && ranked.isEmpty() && catalog.isEmpty() && users == null) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error in save", e);
+            }
+            return;
+        }
+        BasicOutputBuffer buffer = new BasicOutputBuffer(64 * 1024);
+        buffer.writeInt32(MAGIC);
+        buffer.writeInt32(VERSION);
+        buffer.writeInt64(start);
+        buffer.writeInt32(cached.size());
+        for (Content content : cached) {
+            encode(buffer, content);
+        }
+        buffer.writeInt32(ranked.size());
+        for (RankedContent entry : ranked) {
+            encode(buffer, entry.toContent());
+        }
+        buffer.writeInt32(catalog.size());
+        for (Content content : catalog) {
+            encode(buffer, content);
+        }
+        if (users == null) {
+            buffer.writeInt64(-1);
+        } else {
+            buffer.writeInt64(users.getCount());
+            writeFilter(buffer, users.getUsernames());
+            writeFilter(buffer, users.getEmails());
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.pipe(Channels.newOutputStream(channel));
+            channel.force(false);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error in save", e);
+            return;
+        } finally {
+            buffer.close();
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error in save", e);
+            return;
+        }
+        logger.log(Level.INFO, "Content snapshot of " + cached.size() + " cached, " + ranked.size() + " ranked and "
+                + catalog.size() + " catalog items saved in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Memory-maps the snapshot and loads it into the cache, the leaderboards,
+     * the title indexes and the availability filters. Must be called after
+     * the cache is started and before the other services are.
+     *
+     * @return true if a snapshot was loaded.
+     */
+    public synchronized boolean load() {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.log(Level.WARNING, "Ignoring content snapshot with unknown format: " + path);
+                return false;
+            }
+            long saved = buffer.getLong();
+            List<Content> cached = decodeAll(buffer);
+            List<Content> ranked = decodeAll(buffer);
+            List<Content> catalog = decodeAll(buffer);
+            long userCount = buffer.getLong();
+            UserAvailability.FilterState users = userCount < 0 ? null
+                    : new UserAvailability.FilterState(readFilter(buffer), readFilter(buffer), userCount);
+
+            ContentCache cache = ContentCache.getInstance();
+            for (Content content : cached) {
+                cache.put(content);
+            }
+            Leaderboards.getInstance().load(ranked);
+            SimilarTitles.getInstance().load(catalog);
+            FuzzyTitles.getInstance().load(catalog);
+            if (users != null) {
+                UserAvailability.getInstance().load(users, saved);
+            }
+            savedAt = saved;
+            logger.log(Level.INFO, "Content snapshot of " + cached.size() + " cached, " + ranked.size()
+                    + " ranked and " + catalog.size() + " catalog items loaded in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Ignoring unreadable content snapshot: " + path, e);
+            return false;
+        }
+    }
+
+    /**
+     * Applies the MongoDB changes the snapshot missed: the items created or
+     * changed since its watermark, and the loaded items deleted since.
+     *
+     * @param contentDao The DAO used to read the changes.
+     * @param savedAt    The time the snapshot was saved.
+     */
+    void reconcile(ContentDAO contentDao, long savedAt) {
+        long start = System.currentTimeMillis();
+        Leaderboards leaderboards = Leaderboards.getInstance();
+        ContentCache cache = ContentCache.getInstance();
+        SimilarTitles similarTitles = SimilarTitles.getInstance();
+        FuzzyTitles fuzzyTitles = FuzzyTitles.getInstance();
+
+        Set<ObjectId> missing = new HashSet<>();
+        for (RankedContent entry : leaderboards.entries()) {
+            missing.add(entry.getObjectId());
+        }
+        for (Content content : cache.contents()) {
+            missing.add(content.getId());
+        }
+        for (Content content : similarTitles.contents()) {
+            missing.add(content.getId());
+        }
+        boolean idsComplete = contentDao.forEachExistingContentId(new ArrayList<>(missing), missing::remove);
+        if (idsComplete) {
+            for (ObjectId id : missing) {
+                leaderboards.contentDeleted(id);
+                cache.invalidate(id);
+                similarTitles.contentDeleted(id);
+                fuzzyTitles.contentDeleted(id);
+            }
+        }
+
+        ObjectId watermark = ObjectId.getSmallestWithDate(new Date(savedAt - WATERMARK_MARGIN_MILLIS));
+        int[] changed = new int[1];
+        boolean sinceComplete = contentDao.forEachContentSince(watermark, content -> {
+            leaderboards.contentUpdated(content.getId(), content);
+            cache.invalidate(content.getId());
+            similarTitles.contentUpdated(content.getId(), content);
+            fuzzyTitles.contentUpdated(content.getId(), content);
+            changed[0]++;
+        });
+        boolean complete = idsComplete && sinceComplete;
+        logger.log(complete ? Level.INFO : Level.WARNING, "Content snapshot reconciled " + (complete ? "" : "partially ")
+                + "in " + (System.currentTimeMillis() - start) + " ms: " + changed[0] + " changed and "
+                + (idsComplete ? missing.size() : 0) + " deleted items");
+    }
+
+    private static void writeFilter(BasicOutputBuffer buffer, BloomFilter filter) {
+        long[] words = filter.toWords();
+        buffer.writeInt32(filter.getHashCount());
+        buffer.writeInt32(words.length);
+        for (long word : words) {
+            buffer.writeInt64(word);
+        }
+    }
+
+    private static BloomFilter readFilter(ByteBuffer buffer) {
+        int hashCount = buffer.getInt();
+        long[] words = new long[buffer.getInt()];
+        buffer.asLongBuffer().get(words);
+        buffer.position(buffer.position() + words.length * Long.BYTES);
+        return new BloomFilter(words, hashCount);
+    }
+
+    private void encode(BasicOutputBuffer buffer, Content content) {
+        codec.encode(new BsonBinaryWriter(buffer), content, EncoderContext.builder().build());
+    }
+
+    private List<Content> decodeAll(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<Content> contents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt(buffer.position());
+            ByteBuffer document = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            document.limit(length);
+            try (BsonBinaryReader reader = new BsonBinaryReader(document)) {
+                contents.add(codec.decode(reader, DecoderContext.builder().build()));
+            }
+            buffer.position(buffer.position() + length);
+        }
+        return contents;
+    }
+}
@@ -0,0 +1,17 @@
+package com.movingalong.catalog;
+
+import lombok.Data;
+
+/**
+ * A Content item whose title is close to a fuzzy query.
+ */
+@Data
+public class FuzzyMatch {
+    private final String id;
+    private final String title;
+
+    /**
+     * The edit distance between the normalized query and title.
+     */
+    private final int distance;
+}
@@ -0,0 +1,20 @@
+package com.movingalong.catalog;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * The answer to a fuzzy title query.
+ */
+@Data
+public class FuzzyResult {
+    private final String query;
+
+    /**
+     * The title of the closest match when no title matches the query exactly,
+     * otherwise null.
+     */
+    private final String didYouMean;
+    private final List<FuzzyMatch> matches;
+}
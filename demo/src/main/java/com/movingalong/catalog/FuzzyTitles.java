@@ -0,0 +1,334 @@
+package com.movingalong.catalog;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.bson.types.ObjectId;
+
+import com.movingalong.dao.ContentChangeListener;
+import com.movingalong.dao.ContentDAO;
+import com.movingalong.entities.Content;
+import com.movingalong.utils.AppConfig;
+
+/**
+ * Typo-tolerant title lookup over a symmetric-delete index.
+ * Every normalized title is indexed under each string obtained by deleting up
+ * to two of its characters. Two strings within edit distance two share such a
+ * delete, so a query only generates its own deletes and looks them up; the
+ * few candidates found are then checked with the exact distance. Deletes are
+ * generated from the first movingalong.fuzzy.prefixLength characters only,
+ * which bounds the index size for long titles.
+ * The index is kept in sync with the writes made through {@link ContentDAO}
+ * and rebuilt from MongoDB on a schedule, like the {@link Leaderboards}; a
+ * restarted node first loads it from the items of a {@link ContentSnapshot}.
+ */
+public final class FuzzyTitles implements ContentChangeListener {
+    private static final Logger logger = Logger.getLogger(FuzzyTitles.class.getName());
+    private static final FuzzyTitles INSTANCE = new FuzzyTitles();
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MAX_DISTANCE = 2;
+
+    private final int prefixLength;
+    private final long rebuildMinutes;
+    private volatile Index index = new Index();
+    private List<Consumer<Index>> journal;
+    private ScheduledExecutorService scheduler;
+
+    private FuzzyTitles() {
+        this.prefixLength = AppConfig.getInt("movingalong.fuzzy.prefixLength", 16);
+        this.rebuildMinutes = AppConfig.getLong("movingalong.fuzzy.rebuildMinutes", 60);
+    }
+
+    public static FuzzyTitles getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribes to content writes and schedules the periodic rebuild. The
+     * first rebuild runs immediately unless the index was already loaded.
+     *
+     * @param contentDao The DAO used to scan the catalog.
+     */
+    public synchronized void start(ContentDAO contentDao) {
+        if (scheduler != null) {
+            return;
+        }
+        ContentDAO.addChangeListener(this);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fuzzy-titles-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long initialDelay = index.titles.isEmpty() ? 0 : rebuildMinutes;
+        scheduler.scheduleWithFixedDelay(() -> rebuild(contentDao), initialDelay, rebuildMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Unsubscribes from content writes and cancels the periodic rebuild.
+     */
+    public synchronized void stop() {
+        ContentDAO.removeChangeListener(this);
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Finds the Content items whose title is close to a query. The allowed
+     * distance grows with the query: none up to 2 characters, 1 up to 5 and 2
+     * beyond, so that short queries do not match everything.
+     *
+     * @param query The title as typed.
+     * @param n     The maximum number of matches to return.
+     * @return the matches, closest first.
+     */
+    public List<FuzzyMatch> search(String query, int n) {
+        String normalized = normalize(query);
+        int maxDistance = normalized.length() <= 2 ? 0 : normalized.length() <= 5 ? 1 : MAX_DISTANCE;
+        Index current = index;
+
+        Set<String> candidates = new HashSet<>();
+        for (String delete : deletes(normalized, maxDistance)) {
+            Set<String> titles = current.deletes.get(delete);
+            if (titles != null) {
+                candidates.addAll(titles);
+            }
+        }
+        List<FuzzyMatch> matches = new ArrayList<>();
+        for (String candidate : candidates) {
+            int distance = distance(normalized, candidate, maxDistance);
+            if (distance > maxDistance) {
+                continue;
+            }
+            Map<ObjectId, String> items = current.titles.get(candidate);
+            if (items != null) {
+                items.forEach((id, title) -> matches.add(new FuzzyMatch(id.toHexString(), title, distance)));
+            }
+        }
+        matches.sort(Comparator.comparingInt(FuzzyMatch::getDistance)
+                .thenComparingInt(match -> Math.abs(match.getTitle().length() - query.length()))
+                .thenComparing(FuzzyMatch::getTitle)
+                .thenComparing(FuzzyMatch::getId));
+        return matches.size() <= n ? matches : new ArrayList<>(matches.subList(0, n));
+    }
+
+    /**
+     * Replaces the index with one built from the given items, e.g. those of a
+     * snapshot. Must be called before {@link #start(ContentDAO)}.
+     *
+     * @param contents The Content items to index.
+     */
+    public synchronized void load(Iterable<Content> contents) {
+        Index fresh = new Index();
+        for (Content content : contents) {
+            if (content.getId() != null) {
+                fresh.add(content.getId(), content.getTitle());
+            }
+        }
+        index = fresh;
+    }
+
+    /**
+     * Rebuilds the index from a full scan of the catalog. Writes made while
+     * the scan runs are journaled and replayed on the new index before it
+     * replaces the current one.
+     *
+     * @param contentDao The DAO used to scan the catalog.
+     */
+    public void rebuild(ContentDAO contentDao) {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            journal = new ArrayList<>();
+        }
+        Index fresh = new Index();
+        boolean complete = contentDao.forEachContent(content -> {
+            if (content.getId() != null) {
+                fresh.add(content.getId(), content.getTitle());
+            }
+        });
+        synchronized (this) {
+            if (complete) {
+                journal.forEach(change -> change.accept(fresh));
+                index = fresh;
+            }
+            journal = null;
+        }
+        logger.log(Level.INFO, "Fuzzy title index of " + fresh.titles.size() + " titles rebuilt in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    @Override
+    public void contentAdded(Content content) {
+        if (content.getId() != null) {
+            apply(current -> current.add(content.getId(), content.getTitle()));
+        }
+    }
+
+    @Override
+    public void contentUpdated(ObjectId oldId, Content content) {
+        apply(current -> {
+            current.remove(oldId);
+            if (content.getId() != null) {
+                current.add(content.getId(), content.getTitle());
+            }
+        });
+    }
+
+    @Override
+    public void contentDeleted(ObjectId id) {
+        apply(current -> current.remove(id));
+    }
+
+    private synchronized void apply(Consumer<Index> change) {
+        change.accept(index);
+        if (journal != null) {
+            journal.add(change);
+        }
+    }
+
+    /**
+     * Lowercases a title, strips its accents and reduces punctuation and
+     * whitespace to single spaces.
+     */
+    static String normalize(String title) {
+        String decomposed = Normalizer.normalize(title, Normalizer.Form.NFD);
+        String stripped = DIACRITICS.matcher(decomposed).replaceAll("");
+        return SEPARATORS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Returns the strings obtained by deleting up to maxDistance characters
+     * from the prefix of a string, the prefix itself included.
+     */
+    private Set<String> deletes(String value, int maxDistance) {
+        String prefix = value.length() > prefixLength ? value.substring(0, prefixLength) : value;
+        Set<String> deletes = new HashSet<>();
+        deletes.add(prefix);
+        List<String> frontier = List.of(prefix);
+        for (int d = 0; d < maxDistance; d++) {
+            List<String> next = new ArrayList<>();
+            for (String word : frontier) {
+                for (int i = 0; i < word.length(); i++) {
+                    String delete = word.substring(0, i) + word.substring(i + 1);
+                    if (deletes.add(delete)) {
+                        next.add(delete);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return deletes;
+    }
+
+    /**
+     * Returns the optimal string alignment distance of two strings, i.e. the
+     * Levenshtein distance with adjacent transpositions, or maxDistance + 1 as
+     * soon as it is known to exceed maxDistance.
+     */
+    static int distance(String a, String b, int maxDistance) {
+        if (Math.abs(a.length() - b.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * One generation of the index. Queries read it while a single writer at a
+     * time updates it.
+     */
+    private final class Index {
+        /**
+         * The original titles and IDs of the items, by normalized title.
+         */
+        private final Map<String, Map<ObjectId, String>> titles = new ConcurrentHashMap<>();
+
+        /**
+         * The normalized titles, by delete.
+         */
+        private final Map<String, Set<String>> deletes = new ConcurrentHashMap<>();
+
+        private final Map<ObjectId, String> normalizedById = new ConcurrentHashMap<>();
+
+        void add(ObjectId id, String title) {
+            if (title == null) {
+                return;
+            }
+            remove(id);
+            String normalized = normalize(title);
+            normalizedById.put(id, normalized);
+            Map<ObjectId, String> items = titles.computeIfAbsent(normalized, key -> new ConcurrentHashMap<>());
+            if (items.isEmpty()) {
+                for (String delete : deletes(normalized, MAX_DISTANCE)) {
+                    deletes.computeIfAbsent(delete, key -> ConcurrentHashMap.newKeySet()).add(normalized);
+                }
+            }
+            items.put(id, title);
+        }
+
+        void remove(ObjectId id) {
+            String normalized = normalizedById.remove(id);
+            if (normalized == null) {
+                return;
+            }
+            Map<ObjectId, String> items = titles.get(normalized);
+            if (items == null) {
+                return;
+            }
+            items.remove(id);
+            if (items.isEmpty()) {
+                titles.remove(normalized);
+                for (String delete : deletes(normalized, MAX_DISTANCE)) {
+                    Set<String> indexed = deletes.get(delete);
+                    if (indexed != null) {
+                        indexed.remove(normalized);
+                        if (indexed.isEmpty()) {
+                            deletes.remove(delete);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.movingalong.catalog;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.types.ObjectId;
+
+import com.movingalong.dao.ContentChangeListener;
+import com.movingalong.dao.ContentDAO;
+import com.movingalong.entities.Content;
+import com.movingalong.utils.AppConfig;
+
+/**
+ * In-memory "top rated" and "new releases" leaderboards, overall and per genre
+ * and type.
+ * Each board is a ConcurrentSkipListSet kept sorted by its ranking, so reads
+ * walk the head of a set without locking. Boards are updated incrementally from
+ * the writes made through {@link ContentDAO} and fully rebuilt from MongoDB on
+ * a schedule to repair any drift.
+ */
+public final class Leaderboards implements ContentChangeListener {
+    private static final Logger logger = Logger.getLogger(Leaderboards.class.getName());
+    private static final Leaderboards INSTANCE = new Leaderboards();
+
+    /**
+     * The orderings a leaderboard can be requested in.
+     */
+    public enum Ranking {
+        RATING(Comparator.comparing(Leaderboards::scoreOf).reversed()
+                .thenComparing(Leaderboards::releaseDateOf, Comparator.reverseOrder())
+                .thenComparing(RankedContent::getObjectId)),
+        RELEASE(Comparator.comparing(Leaderboards::releaseDateOf).reversed()
+                .thenComparing(Leaderboards::scoreOf, Comparator.reverseOrder())
+                .thenComparing(RankedContent::getObjectId));
+
+        private final Comparator<RankedContent> comparator;
+
+        Ranking(Comparator<RankedContent> comparator) {
+            this.comparator = comparator;
+        }
+    }
+
+    private final long rebuildMinutes;
+    private volatile Boards boards = new Boards();
+    private List<Consumer<Boards>> journal;
+    private ScheduledExecutorService scheduler;
+
+    private Leaderboards() {
+        this.rebuildMinutes = AppConfig.getLong("movingalong.leaderboards.rebuildMinutes", 15);
+    }
+
+    public static Leaderboards getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribes to content writes and schedules the periodic rebuild. The
+     * first rebuild runs immediately unless the boards were already loaded,
+     * e.g. from a snapshot.
+     *
+     * @param contentDao The DAO used to scan the catalog.
+     */
+    public synchronized void start(ContentDAO contentDao) {
+        if (scheduler != null) {
+            return;
+        }
+        ContentDAO.addChangeListener(this);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "leaderboards-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long initialDelay = boards.entries.isEmpty() ? 0 : rebuildMinutes;
+        scheduler.scheduleWithFixedDelay(() -> rebuild(contentDao), initialDelay, rebuildMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Unsubscribes from content writes and cancels the periodic rebuild.
+     */
+    public synchronized void stop() {
+        ContentDAO.removeChangeListener(this);
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Returns the top Content items of a leaderboard.
+     *
+     * @param ranking The ordering of the leaderboard.
+     * @param genre   The genre to restrict to, or null for every genre.
+     * @param type    The type to restrict to, or null for every type.
+     * @param n       The maximum number of items to return.
+     * @return a list of at most n items, best first.
+     */
+    public List<RankedContent> getTop(Ranking ranking, String genre, String type, int n) {
+        Boards current = boards;
+        NavigableSet<RankedContent> board;
+        if (genre != null) {
+            board = current.board(ranking, "genre:" + genre);
+        } else if (type != null) {
+            board = current.board(ranking, "type:" + type);
+        } else {
+            board = current.board(ranking, "");
+        }
+        List<RankedContent> top = new ArrayList<>(Math.min(n, 100));
+        if (board == null) {
+            return top;
+        }
+        for (RankedContent entry : board) {
+            if (top.size() >= n) {
+                break;
+            }
+            if (type == null || type.equals(entry.getType())) {
+                top.add(entry);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Returns a copy of every ranked Content item.
+     */
+    public List<RankedContent> entries() {
+        return new ArrayList<>(boards.entries.values());
+    }
+
+    /**
+     * Replaces every leaderboard with boards built from the given items.
+     *
+     * @param contents The Content items to rank.
+     */
+    public synchronized void load(Iterable<Content> contents) {
+        Boards fresh = new Boards();
+        for (Content content : contents) {
+            if (content.getId() != null) {
+                fresh.add(new RankedContent(content));
+            }
+        }
+        boards = fresh;
+    }
+
+    /**
+     * Rebuilds every leaderboard from a full scan of the catalog. Writes made
+     * while the scan runs are journaled and replayed on the new boards before
+     * they replace the current ones.
+     *
+     * @param contentDao The DAO used to scan the catalog.
+     */
+    public void rebuild(ContentDAO contentDao) {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            journal = new ArrayList<>();
+        }
+        Boards fresh = new Boards();
+        boolean complete = contentDao.forEachContent(content -> {
+            if (content.getId() != null) {
+                fresh.add(new RankedContent(content));
+            }
+        });
+        synchronized (this) {
+            if (complete) {
+                journal.forEach(change -> change.accept(fresh));
+                boards = fresh;
+            }
+            journal = null;
+        }
+        logger.log(Level.INFO, "Leaderboards rebuilt in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    @Override
+    public void contentAdded(Content content) {
+        RankedContent entry = new RankedContent(content);
+        apply(current -> current.add(entry));
+    }
+
+    @Override
+    public void contentUpdated(ObjectId oldId, Content content) {
+        RankedContent entry = new RankedContent(content);
+        apply(current -> {
+            current.remove(oldId);
+            current.add(entry);
+        });
+    }
+
+    @Override
+    public void contentDeleted(ObjectId id) {
+        apply(current -> current.remove(id));
+    }
+
+    private synchronized void apply(Consumer<Boards> change) {
+        change.accept(boards);
+        if (journal != null) {
+            journal.add(change);
+        }
+    }
+
+    private static int scoreOf(RankedContent entry) {
+        return entry.getScoreRating() == null ? Integer.MIN_VALUE : entry.getScoreRating();
+    }
+
+    private static LocalDate releaseDateOf(RankedContent entry) {
+        return entry.getReleaseDate() == null ? LocalDate.MIN : entry.getReleaseDate();
+    }
+
+    /**
+     * One generation of leaderboards. Boards are keyed by "" for the overall
+     * board, "genre:&lt;genre&gt;" and "type:&lt;type&gt;".
+     */
+    private static final class Boards {
+        private final Map<ObjectId, RankedContent> entries = new ConcurrentHashMap<>();
+        private final Map<Ranking, Map<String, NavigableSet<RankedContent>>> boards = new ConcurrentHashMap<>();
+
+        NavigableSet<RankedContent> board(Ranking ranking, String key) {
+            Map<String, NavigableSet<RankedContent>> byKey = boards.get(ranking);
+            return byKey == null ? null : byKey.get(key);
+        }
+
+        void add(RankedContent entry) {
+            remove(entry.getObjectId());
+            entries.put(entry.getObjectId(), entry);
+            for (Ranking ranking : Ranking.values()) {
+                for (String key : keysOf(entry)) {
+                    boards.computeIfAbsent(ranking, r -> new ConcurrentHashMap<>())
+                            .computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(ranking.comparator))
+                            .add(entry);
+                }
+            }
+        }
+
+        void remove(ObjectId id) {
+            RankedContent entry = entries.remove(id);
+            if (entry == null) {
+                return;
+            }
+            for (Ranking ranking : Ranking.values()) {
+                for (String key : keysOf(entry)) {
+                    NavigableSet<RankedContent> board = board(ranking, key);
+                    if (board != null) {
+                        board.remove(entry);
+                    }
+                }
+            }
+        }
+
+        private static List<String> keysOf(RankedContent entry) {
+            List<String> keys = new ArrayList<>(3);
+            keys.add("");
+            if (entry.getGenre() != null) {
+                keys.add("genre:" + entry.getGenre());
+            }
+            if (entry.getType() != null) {
+                keys.add("type:" + entry.getType());
+            }
+            return keys;
+        }
+    }
+}
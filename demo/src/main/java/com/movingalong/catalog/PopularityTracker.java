@@ -0,0 +1,176 @@
+package com.movingalong.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.movingalong.utils.AppConfig;
+
+/**
+ * Tracks how often each Content item is read and which ones are trending.
+ * Views are counted in memory with striped LongAdder counters, so recording a
+ * view never takes a lock nor touches MongoDB. A background task periodically
+ * drains the counters, folds them into exponentially decayed scores and
+ * persists the raw counts to the "content_views" collection in one unordered
+ * bulk $inc write.
+ * Counters whose content has gone idle are dropped after a flush, so a view
+ * racing with that removal may be lost; the counts are meant as popularity
+ * signals, not as an exact audit trail.
+ */
+public final class PopularityTracker {
+    private static final Logger logger = Logger.getLogger(PopularityTracker.class.getName());
+    private static final PopularityTracker INSTANCE = new PopularityTracker();
+
+    /**
+     * Scores below this value are considered cold and forgotten.
+     */
+    private static final double MIN_SCORE = 0.01;
+
+    private final ConcurrentHashMap<ObjectId, LongAdder> pending = new ConcurrentHashMap<>();
+    private final Map<ObjectId, Double> scores = new HashMap<>();
+    private final long flushSeconds;
+    private final double halfLifeMillis;
+    private final int maxTrending;
+    private volatile List<TrendingEntry> trending = Collections.emptyList();
+    private long lastFlushMillis = System.currentTimeMillis();
+    private ScheduledExecutorService scheduler;
+    private MongoCollection<Document> views;
+
+    private PopularityTracker() {
+        this.flushSeconds = AppConfig.getLong("movingalong.popularity.flushSeconds", 10);
+        this.halfLifeMillis = AppConfig.getDouble("movingalong.popularity.halfLifeMinutes", 60) * 60_000;
+        this.maxTrending = AppConfig.getInt("movingalong.popularity.maxTrending", 100);
+    }
+
+    public static PopularityTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts the periodic flush to MongoDB.
+     *
+     * @param database The database holding the "content_views" collection.
+     */
+    public synchronized void start(MongoDatabase database) {
+        if (scheduler != null) {
+            return;
+        }
+        this.views = database.getCollection("content_views");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "popularity-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushSeconds, flushSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic flush, writing out the counts gathered so far. The
+     * monitor is released while waiting, since a running flush holds it.
+     */
+    public void stop() {
+        ScheduledExecutorService stopped;
+        synchronized (this) {
+            stopped = scheduler;
+            scheduler = null;
+        }
+        if (stopped == null) {
+            return;
+        }
+        stopped.shutdown();
+        try {
+            stopped.awaitTermination(flushSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Records one view of a Content item.
+     *
+     * @param id The ObjectId of the Content item that was read.
+     */
+    public void recordView(ObjectId id) {
+        LongAdder counter = pending.get(id);
+        if (counter == null) {
+            counter = pending.computeIfAbsent(id, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Returns the most popular Content items, hottest first.
+     *
+     * @param n The maximum number of entries to return.
+     * @return a list of at most n entries.
+     */
+    public List<TrendingEntry> getTrending(int n) {
+        List<TrendingEntry> current = trending;
+        return current.subList(0, Math.min(Math.max(n, 0), current.size()));
+    }
+
+    /**
+     * Drains the counters, decays the scores and persists the counts. Only ever
+     * run by one thread at a time.
+     */
+    synchronized void flush() {
+        try {
+            long now = System.currentTimeMillis();
+            double decay = Math.pow(0.5, (now - lastFlushMillis) / halfLifeMillis);
+            lastFlushMillis = now;
+
+            List<WriteModel<Document>> increments = new ArrayList<>();
+            for (Map.Entry<ObjectId, Double> score : scores.entrySet()) {
+                score.setValue(score.getValue() * decay);
+            }
+            for (Iterator<Map.Entry<ObjectId, LongAdder>> it = pending.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<ObjectId, LongAdder> entry = it.next();
+                long count = entry.getValue().sumThenReset();
+                if (count == 0) {
+                    it.remove();
+                    continue;
+                }
+                scores.merge(entry.getKey(), (double) count, Double::sum);
+                increments.add(new UpdateOneModel<>(Filters.eq("_id", entry.getKey()),
+                        Updates.inc("views", count), new UpdateOptions().upsert(true)));
+            }
+            scores.values().removeIf(score -> score < MIN_SCORE);
+
+            List<TrendingEntry> ranked = new ArrayList<>(scores.size());
+            for (Map.Entry<ObjectId, Double> score : scores.entrySet()) {
+                ranked.add(new TrendingEntry(score.getKey().toHexString(), score.getValue()));
+            }
+            ranked.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+            trending = Collections.unmodifiableList(
+                    new ArrayList<>(ranked.subList(0, Math.min(maxTrending, ranked.size()))));
+
+            if (!increments.isEmpty() && views != null) {
+                views.bulkWrite(increments, new BulkWriteOptions().ordered(false));
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error in flush", e);
+        }
+    }
+}
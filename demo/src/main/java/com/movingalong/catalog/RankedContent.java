@@ -0,0 +1,44 @@
+package com.movingalong.catalog;
+
+import java.time.LocalDate;
+
+import org.bson.types.ObjectId;
+
+import com.movingalong.entities.Content;
+
+import jakarta.json.bind.annotation.JsonbTransient;
+import lombok.Data;
+
+/**
+ * The part of a Content item kept in memory by the leaderboards.
+ */
+@Data
+public class RankedContent {
+    @JsonbTransient
+    private final ObjectId objectId;
+    private final String id;
+    private final String title;
+    private final String genre;
+    private final String type;
+    private final Integer scoreRating;
+    private final LocalDate releaseDate;
+
+    public RankedContent(Content content) {
+        this.objectId = content.getId();
+        this.id = content.getId().toHexString();
+        this.title = content.getTitle();
+        this.genre = content.getGenre();
+        this.type = content.getType();
+        this.scoreRating = content.getScoreRating();
+        this.releaseDate = content.getReleaseDate();
+    }
+
+    /**
+     * Returns a Content holding only the ranked fields.
+     */
+    public Content toContent() {
+        Content content = new Content(title, genre, null, null, releaseDate, null, null, scoreRating, type);
+        content.setId(objectId);
+        return content;
+    }
+}
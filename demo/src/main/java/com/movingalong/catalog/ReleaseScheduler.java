@@ -0,0 +1,235 @@
+package com.movingalong.catalog;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongBiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.types.ObjectId;
+
+import com.movingalong.dao.ContentChangeListener;
+import com.movingalong.dao.ContentDAO;
+import com.movingalong.entities.Content;
+import com.movingalong.utils.AppConfig;
+
+/**
+ * Moves Content items to the "Released" status on their release date, so
+ * reads never have to compare dates. The upcoming releases are kept in a map
+ * sorted by day; each tick takes every day up to today and flips those items
+ * with one updateMany per movingalong.release.batchSize items. The released
+ * items are then reported to the {@link ContentDAO} listeners like any other
+ * update, which invalidates the cache and the derived structures.
+ * The map follows the writes made through ContentDAO and is filled again from
+ * an indexed query at startup and every movingalong.release.rescanMinutes,
+ * which also picks up the writes of other nodes.
+ */
+public final class ReleaseScheduler implements ContentChangeListener {
+    private static final Logger logger = Logger.getLogger(ReleaseScheduler.class.getName());
+    private static final ReleaseScheduler INSTANCE = new ReleaseScheduler();
+
+    private final ZoneId zone;
+    private final long tickSeconds;
+    private final long rescanMinutes;
+    private final int batchSize;
+    private final ConcurrentSkipListMap<LocalDate, Set<ObjectId>> upcoming = new ConcurrentSkipListMap<>();
+    private final Map<ObjectId, LocalDate> releaseDates = new ConcurrentHashMap<>();
+    private ContentDAO contentDao;
+    private ScheduledExecutorService scheduler;
+
+    private ReleaseScheduler() {
+        this(ZoneId.of(AppConfig.getString("movingalong.release.zone", "UTC")),
+                AppConfig.getInt("movingalong.release.batchSize", 1000));
+    }
+
+    /**
+     * Constructor for ReleaseScheduler, used directly by tests.
+     *
+     * @param zone      The zone in which release dates are days.
+     * @param batchSize The maximum number of items released per update.
+     */
+    ReleaseScheduler(ZoneId zone, int batchSize) {
+        this.zone = zone;
+        this.tickSeconds = AppConfig.getLong("movingalong.release.tickSeconds", 60);
+        this.rescanMinutes = AppConfig.getLong("movingalong.release.rescanMinutes", 360);
+        this.batchSize = batchSize;
+    }
+
+    public static ReleaseScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribes to content writes, loads the upcoming releases and schedules
+     * the ticks.
+     *
+     * @param contentDao The DAO used to find and release the items.
+     */
+    public synchronized void start(ContentDAO contentDao) {
+        if (scheduler != null) {
+            return;
+        }
+        this.contentDao = contentDao;
+        ContentDAO.addChangeListener(this);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "release-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(contentDao::ensureReleaseIndex);
+        scheduler.scheduleWithFixedDelay(this::rescan, 0, rescanMinutes, TimeUnit.MINUTES);
+        scheduler.scheduleWithFixedDelay(this::tick, tickSeconds, tickSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Unsubscribes from content writes, cancels the ticks and forgets the
+     * upcoming releases.
+     */
+    public synchronized void stop() {
+        ContentDAO.removeChangeListener(this);
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        upcoming.clear();
+        releaseDates.clear();
+    }
+
+    /**
+     * Adds the upcoming releases found in MongoDB. Items already known are
+     * moved to the date found, and items released or deleted elsewhere are
+     * left to be dropped by the tick of their date, whose update then matches
+     * nothing.
+     */
+    private void rescan() {
+        long start = System.currentTimeMillis();
+        if (contentDao.forEachUpcomingRelease(this::schedule)) {
+            logger.log(Level.INFO, "Release schedule of " + releaseDates.size() + " items loaded in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        tick();
+    }
+
+    private void tick() {
+        tick(LocalDate.now(zone), contentDao::releaseContents);
+    }
+
+    /**
+     * Releases every item whose date has come. Items whose update failed stay
+     * scheduled and are retried on the next tick.
+     *
+     * @param today    The current day.
+     * @param releaser Releases a batch of items, returning the number
+     *                 released or -1 if an error occurred.
+     */
+    void tick(LocalDate today, ToLongBiFunction<List<ObjectId>, LocalDate> releaser) {
+        Map<LocalDate, Set<ObjectId>> due = upcoming.headMap(today, true);
+        if (due.isEmpty()) {
+            return;
+        }
+        List<ObjectId> batch = new ArrayList<>(batchSize);
+        for (Set<ObjectId> ids : due.values()) {
+            for (ObjectId id : ids) {
+                batch.add(id);
+                if (batch.size() == batchSize) {
+                    release(batch, today, releaser);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            release(batch, today, releaser);
+        }
+    }
+
+    private void release(List<ObjectId> batch, LocalDate today,
+            ToLongBiFunction<List<ObjectId>, LocalDate> releaser) {
+        long released = releaser.applyAsLong(batch, today);
+        if (released < 0) {
+            return;
+        }
+        for (ObjectId id : batch) {
+            LocalDate date = releaseDates.get(id);
+            if (date != null && !date.isAfter(today)) {
+                unschedule(id);
+            }
+        }
+        if (released > 0) {
+            logger.log(Level.INFO, "Released " + released + " items");
+        }
+    }
+
+    /**
+     * Returns the ObjectIds of the scheduled items, by release day.
+     */
+    Map<LocalDate, Set<ObjectId>> getUpcoming() {
+        return upcoming;
+    }
+
+    @Override
+    public void contentAdded(Content content) {
+        if (content.getId() != null) {
+            schedule(content);
+        }
+    }
+
+    @Override
+    public void contentUpdated(ObjectId oldId, Content content) {
+        if (!oldId.equals(content.getId())) {
+            unschedule(oldId);
+        }
+        if (content.getId() != null) {
+            schedule(content);
+        }
+    }
+
+    @Override
+    public void contentDeleted(ObjectId id) {
+        unschedule(id);
+    }
+
+    private void schedule(Content content) {
+        if (Content.RELEASED.equals(content.getStatus()) || content.getReleaseDate() == null) {
+            unschedule(content.getId());
+        } else {
+            schedule(content.getId(), content.getReleaseDate());
+        }
+    }
+
+    private synchronized void schedule(ObjectId id, LocalDate date) {
+        LocalDate previous = releaseDates.put(id, date);
+        if (date.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            removeFromDay(id, previous);
+        }
+        upcoming.computeIfAbsent(date, key -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    private synchronized void unschedule(ObjectId id) {
+        LocalDate previous = releaseDates.remove(id);
+        if (previous != null) {
+            removeFromDay(id, previous);
+        }
+    }
+
+    private void removeFromDay(ObjectId id, LocalDate date) {
+        Set<ObjectId> ids = upcoming.get(date);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                upcoming.remove(date);
+            }
+        }
+    }
+}
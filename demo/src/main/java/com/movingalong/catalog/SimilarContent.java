@@ -0,0 +1,33 @@
+package com.movingalong.catalog;
+
+import org.bson.types.ObjectId;
+
+import jakarta.json.bind.annotation.JsonbTransient;
+import lombok.Data;
+
+/**
+ * A neighbour of a Content item in the "similar titles" lists.
+ */
+@Data
+public class SimilarContent {
+    @JsonbTransient
+    private final ObjectId objectId;
+    private final String id;
+    private final String title;
+    private final String genre;
+    private final String type;
+
+    /**
+     * The cosine similarity of the two items, between 0 and 1.
+     */
+    private final double score;
+
+    public SimilarContent(ObjectId objectId, String title, String genre, String type, double score) {
+        this.objectId = objectId;
+        this.id = objectId.toHexString();
+        this.title = title;
+        this.genre = genre;
+        this.type = type;
+        this.score = score;
+    }
+}
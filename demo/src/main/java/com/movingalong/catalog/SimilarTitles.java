@@ -0,0 +1,525 @@
+package com.movingalong.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.types.ObjectId;
+
+import com.movingalong.dao.ContentChangeListener;
+import com.movingalong.dao.ContentDAO;
+import com.movingalong.entities.Content;
+import com.movingalong.utils.AppConfig;
+
+/**
+ * "More like this" lists, precomputed for every Content item.
+ * Each item is a sparse vector of its genres, type, age rating and
+ * celebrities, weighted by inverse document frequency so that a shared
+ * celebrity counts for more than a shared type, and normalized so that the dot
+ * product of two vectors is their cosine similarity. An inverted index from
+ * feature to items gives the candidates an item is compared with. Features
+ * shared by more than movingalong.similar.maxPosting items, such as a type or
+ * an age rating, still count in the score but do not bring candidates, except
+ * to fill up an item that has no more selective feature; this keeps the work
+ * per item bounded instead of proportional to the catalog.
+ * The top-K neighbours of every item are computed in parallel on a
+ * ForkJoinPool by a full rebuild, run at startup and on a schedule, or from
+ * the items of a {@link ContentSnapshot} when a node restarts. In
+ * between, each write made through {@link ContentDAO} recomputes the list of
+ * the written item and inserts it into, or removes it from, the lists of its
+ * candidates; that work is queued to a background thread rather than done on
+ * the writer's. Lists are served straight from memory.
+ */
+public final class SimilarTitles implements ContentChangeListener {
+    private static final Logger logger = Logger.getLogger(SimilarTitles.class.getName());
+    private static final SimilarTitles INSTANCE = new SimilarTitles();
+    private static final Comparator<SimilarContent> BY_SCORE = Comparator.comparingDouble(SimilarContent::getScore)
+            .reversed().thenComparing(SimilarContent::getObjectId);
+
+    private final int k;
+    private final int parallelism;
+    private final long rebuildMinutes;
+    private final int maxPosting;
+    private volatile Model model = new Model(Collections.emptyMap(), 0);
+    private List<Consumer<Model>> journal;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService updater;
+
+    private SimilarTitles() {
+        this.k = AppConfig.getInt("movingalong.similar.k", 20);
+        this.parallelism = AppConfig.getInt("movingalong.similar.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        this.rebuildMinutes = AppConfig.getLong("movingalong.similar.rebuildMinutes", 60);
+        this.maxPosting = AppConfig.getInt("movingalong.similar.maxPosting", 1000);
+    }
+
+    public static SimilarTitles getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribes to content writes and schedules the full rebuild. The first
+     * rebuild runs immediately unless the model was already loaded.
+     *
+     * @param contentDao The DAO used to scan the catalog.
+     */
+    public synchronized void start(ContentDAO contentDao) {
+        if (scheduler != null) {
+            return;
+        }
+        updater = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "similar-titles-update");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ContentDAO.addChangeListener(this);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "similar-titles-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long initialDelay = model.items.isEmpty() ? 0 : rebuildMinutes;
+        scheduler.scheduleWithFixedDelay(() -> rebuild(contentDao), initialDelay, rebuildMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Unsubscribes from content writes and cancels the rebuild.
+     */
+    public synchronized void stop() {
+        ContentDAO.removeChangeListener(this);
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            updater.shutdownNow();
+            scheduler = null;
+            updater = null;
+        }
+    }
+
+    /**
+     * Returns the items most similar to a Content item.
+     *
+     * @param id The ObjectId of the Content item.
+     * @param n  The maximum number of items to return.
+     * @return the similar items, most similar first, or null if the item is
+     *         not indexed.
+     */
+    public List<SimilarContent> getSimilar(ObjectId id, int n) {
+        Model current = model;
+        List<SimilarContent> neighbours = current.neighbours.get(id);
+        if (neighbours == null) {
+            return null;
+        }
+        List<SimilarContent> similar = new ArrayList<>(Math.min(n, neighbours.size()));
+        for (SimilarContent neighbour : neighbours) {
+            // A removed item may linger in the lists of items it was not a candidate of
+            if (current.items.containsKey(neighbour.getObjectId())) {
+                similar.add(neighbour);
+                if (similar.size() == n) {
+                    break;
+                }
+            }
+        }
+        return similar;
+    }
+
+    /**
+     * Returns the current model.
+     */
+    Model getModel() {
+        return model;
+    }
+
+    /**
+     * Returns the number of neighbours kept per item.
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Returns the indexed items, reduced to the fields their features and
+     * lists are made of.
+     */
+    public List<Content> contents() {
+        List<Content> contents = new ArrayList<>();
+        for (Item item : model.items.values()) {
+            contents.add(item.content);
+        }
+        return contents;
+    }
+
+    /**
+     * Replaces the model with one built from the given items, e.g. those of a
+     * snapshot. Must be called before {@link #start(ContentDAO)}.
+     *
+     * @param contents The Content items to index.
+     */
+    public void load(List<Content> contents) {
+        Model fresh = build(contents);
+        if (fresh != null) {
+            synchronized (this) {
+                model = fresh;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the vectors, the index and every neighbour list from a full
+     * scan of the catalog. Writes made meanwhile are journaled and replayed on
+     * the new model before it replaces the current one.
+     *
+     * @param contentDao The DAO used to scan the catalog.
+     */
+    public void rebuild(ContentDAO contentDao) {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            journal = new ArrayList<>();
+        }
+        List<Content> contents = new ArrayList<>();
+        boolean complete = contentDao.forEachContent(content -> {
+            if (content.getId() != null) {
+                contents.add(content);
+            }
+        });
+        Model fresh = complete ? build(contents) : null;
+
+        synchronized (this) {
+            if (fresh != null) {
+                journal.forEach(change -> change.accept(fresh));
+                model = fresh;
+            }
+            journal = null;
+        }
+        logger.log(Level.INFO, "Similar titles of " + contents.size() + " items rebuilt in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Builds a model and every neighbour list from the given items.
+     *
+     * @return the model, or null if it could not be completed.
+     */
+    private Model build(List<Content> contents) {
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (Content content : contents) {
+            for (String feature : featuresOf(content)) {
+                documentFrequency.merge(feature, 1, Integer::sum);
+            }
+        }
+        Model fresh = new Model(documentFrequency, contents.size());
+        for (Content content : contents) {
+            fresh.index(content);
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> fresh.items.values().parallelStream()
+                    .forEach(item -> fresh.neighbours.put(item.id, fresh.topK(item, fresh.scores(item)))))
+                    .get();
+            return fresh;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.log(Level.SEVERE, "Error in build", e.getCause());
+            return null;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public void contentAdded(Content content) {
+        if (content.getId() != null) {
+            apply(current -> current.add(content));
+        }
+    }
+
+    @Override
+    public void contentUpdated(ObjectId oldId, Content content) {
+        apply(current -> {
+            current.remove(oldId);
+            if (content.getId() != null) {
+                current.add(content);
+            }
+        });
+    }
+
+    @Override
+    public void contentDeleted(ObjectId id) {
+        apply(current -> current.remove(id));
+    }
+
+    /**
+     * Queues a change to the background thread, which applies it to the
+     * current model and journals it if a rebuild is running.
+     */
+    private synchronized void apply(Consumer<Model> change) {
+        if (updater == null) {
+            return;
+        }
+        try {
+            updater.execute(() -> {
+                synchronized (this) {
+                    change.accept(model);
+                    if (journal != null) {
+                        journal.add(change);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.log(Level.FINE, "Similar titles update dropped on shutdown", e);
+        }
+    }
+
+    /**
+     * Returns the features of a Content item: its genres, type, age rating and
+     * celebrities.
+     */
+    static List<String> featuresOf(Content content) {
+        List<String> features = new ArrayList<>();
+        if (content.getGenre() != null) {
+            for (String genre : content.getGenre().split("[,/|]")) {
+                if (!genre.isBlank()) {
+                    features.add("genre:" + genre.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        if (content.getType() != null && !content.getType().isBlank()) {
+            features.add("type:" + content.getType().trim().toLowerCase(Locale.ROOT));
+        }
+        if (content.getAgeRating() != null && !content.getAgeRating().isBlank()) {
+            features.add("age:" + content.getAgeRating().trim().toUpperCase(Locale.ROOT));
+        }
+        if (content.getCelebrities() != null) {
+            for (ObjectId celebrity : content.getCelebrities()) {
+                features.add("celebrity:" + celebrity.toHexString());
+            }
+        }
+        return features;
+    }
+
+    /**
+     * An indexed Content item with its normalized feature vector.
+     */
+    private static final class Item {
+        private final ObjectId id;
+        private final String title;
+        private final String genre;
+        private final String type;
+        private final Content content;
+        private final Map<String, Double> vector;
+
+        Item(Content content, Map<String, Double> vector) {
+            this.id = content.getId();
+            this.title = content.getTitle();
+            this.genre = content.getGenre();
+            this.type = content.getType();
+            this.content = new Content();
+            this.content.setId(id);
+            this.content.setTitle(title);
+            this.content.setGenre(genre);
+            this.content.setType(type);
+            this.content.setAgeRating(content.getAgeRating());
+            this.content.setCelebrities(content.getCelebrities());
+            this.vector = vector;
+        }
+    }
+
+    /**
+     * One generation of vectors, index and neighbour lists. Only the neighbour
+     * lists are read concurrently; everything else is written by a single
+     * thread at a time.
+     */
+    final class Model {
+        private final Map<String, Integer> documentFrequency;
+        private final int documentCount;
+        private final Map<ObjectId, Item> items = new ConcurrentHashMap<>();
+        private final Map<String, Map<ObjectId, Double>> postings = new HashMap<>();
+        private final Map<ObjectId, List<SimilarContent>> neighbours = new ConcurrentHashMap<>();
+
+        Model(Map<String, Integer> documentFrequency, int documentCount) {
+            this.documentFrequency = documentFrequency;
+            this.documentCount = documentCount;
+        }
+
+        /**
+         * Indexes an item without touching any neighbour list.
+         */
+        Item index(Content content) {
+            // The frequencies of the last rebuild are kept until the next one
+            Map<String, Double> vector = new TreeMap<>();
+            double norm = 0;
+            for (String feature : featuresOf(content)) {
+                int df = documentFrequency.getOrDefault(feature, 0);
+                double weight = Math.log((1.0 + documentCount) / (1.0 + df)) + 1;
+                vector.put(feature, weight);
+                norm += weight * weight;
+            }
+            double length = Math.sqrt(norm);
+            vector.replaceAll((feature, weight) -> weight / length);
+
+            Item item = new Item(content, vector);
+            items.put(item.id, item);
+            vector.forEach((feature, weight) -> postings.computeIfAbsent(feature, f -> new HashMap<>())
+                    .put(item.id, weight));
+            return item;
+        }
+
+        /**
+         * Adds an item, computes its list and inserts it into the lists of the
+         * items it scores high enough for.
+         */
+        void add(Content content) {
+            remove(content.getId());
+            Item item = index(content);
+            Map<ObjectId, Double> scores = scores(item);
+            neighbours.put(item.id, topK(item, scores));
+            scores.forEach((otherId, score) -> {
+                List<SimilarContent> list = neighbours.get(otherId);
+                if (list == null) {
+                    return;
+                }
+                if (list.size() < k || score > list.get(list.size() - 1).getScore()) {
+                    List<SimilarContent> updated = new ArrayList<>(list.size() + 1);
+                    updated.addAll(list);
+                    updated.add(new SimilarContent(item.id, item.title, item.genre, item.type, round(score)));
+                    updated.sort(BY_SCORE);
+                    neighbours.put(otherId, Collections.unmodifiableList(
+                            updated.size() > k ? new ArrayList<>(updated.subList(0, k)) : updated));
+                }
+            });
+        }
+
+        /**
+         * Removes an item and drops it from the lists that contain it. Those
+         * lists stay one short until the next rebuild.
+         */
+        void remove(ObjectId id) {
+            Item item = items.remove(id);
+            if (item == null) {
+                return;
+            }
+            neighbours.remove(id);
+            for (ObjectId otherId : candidates(item)) {
+                List<SimilarContent> list = neighbours.get(otherId);
+                if (list != null && list.stream().anyMatch(entry -> entry.getObjectId().equals(id))) {
+                    List<SimilarContent> updated = new ArrayList<>(list);
+                    updated.removeIf(entry -> entry.getObjectId().equals(id));
+                    neighbours.put(otherId, Collections.unmodifiableList(updated));
+                }
+            }
+            item.vector.keySet().forEach(feature -> {
+                Map<ObjectId, Double> posting = postings.get(feature);
+                if (posting != null) {
+                    posting.remove(id);
+                    if (posting.isEmpty()) {
+                        postings.remove(feature);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Returns the similarity of an item with each of its candidates.
+         */
+        Map<ObjectId, Double> scores(Item item) {
+            Map<ObjectId, Double> scores = new HashMap<>();
+            for (ObjectId otherId : candidates(item)) {
+                Item other = items.get(otherId);
+                if (other != null) {
+                    scores.put(otherId, dot(item.vector, other.vector));
+                }
+            }
+            return scores;
+        }
+
+        /**
+         * Returns the items sharing a selective feature with an item. If that
+         * gives fewer than maxPosting candidates, the postings of the common
+         * features are sampled to make up the difference, the rarest first.
+         */
+        Set<ObjectId> candidates(Item item) {
+            List<Map<ObjectId, Double>> common = new ArrayList<>();
+            Set<ObjectId> candidates = new HashSet<>();
+            for (String feature : item.vector.keySet()) {
+                Map<ObjectId, Double> posting = postings.get(feature);
+                if (posting == null) {
+                    continue;
+                }
+                if (posting.size() <= maxPosting) {
+                    candidates.addAll(posting.keySet());
+                } else {
+                    common.add(posting);
+                }
+            }
+            common.sort(Comparator.comparingInt(Map::size));
+            for (Map<ObjectId, Double> posting : common) {
+                for (ObjectId otherId : posting.keySet()) {
+                    if (candidates.size() >= maxPosting) {
+                        break;
+                    }
+                    candidates.add(otherId);
+                }
+            }
+            candidates.remove(item.id);
+            return candidates;
+        }
+
+        List<SimilarContent> topK(Item item, Map<ObjectId, Double> scores) {
+            // The head is the worst entry: the lowest score, then the highest ID
+            PriorityQueue<Map.Entry<ObjectId, Double>> heap = new PriorityQueue<>(k + 1,
+                    Map.Entry.<ObjectId, Double>comparingByValue()
+                            .thenComparing(Map.Entry::getKey, Comparator.reverseOrder()));
+            for (Map.Entry<ObjectId, Double> entry : scores.entrySet()) {
+                heap.offer(entry);
+                if (heap.size() > k) {
+                    heap.poll();
+                }
+            }
+            List<SimilarContent> top = new ArrayList<>(heap.size());
+            for (Map.Entry<ObjectId, Double> entry : heap) {
+                Item other = items.get(entry.getKey());
+                top.add(new SimilarContent(other.id, other.title, other.genre, other.type, round(entry.getValue())));
+            }
+            top.sort(BY_SCORE);
+            return Collections.unmodifiableList(top);
+        }
+    }
+
+    private static double dot(Map<String, Double> a, Map<String, Double> b) {
+        if (a.size() > b.size()) {
+            return dot(b, a);
+        }
+        double sum = 0;
+        for (Map.Entry<String, Double> entry : a.entrySet()) {
+            Double weight = b.get(entry.getKey());
+            if (weight != null) {
+                sum += entry.getValue() * weight;
+            }
+        }
+        return sum;
+    }
+
+    private static double round(double score) {
+        return Math.round(score * 10_000) / 10_000.0;
+    }
+}
@@ -0,0 +1,20 @@
+package com.movingalong.catalog;
+
+import lombok.Data;
+
+/**
+ * A content id together with its time-decayed popularity score.
+ */
+@Data
+public class TrendingEntry {
+    private String contentId;
+    private double score;
+
+    public TrendingEntry() {
+    }
+
+    public TrendingEntry(String contentId, double score) {
+        this.contentId = contentId;
+        this.score = score;
+    }
+}
@@ -0,0 +1,128 @@
+package com.movingalong.codecs;
+
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import com.movingalong.entities.Content;
+
+/**
+ * Hand-written codec for {@link Content}, reading fields straight from the
+ * BsonReader without going through Morphia's reflective mapper.
+ */
+public class ContentCodec implements CollectibleCodec<Content> {
+    private final LocalDateCodec localDateCodec = new LocalDateCodec();
+
+    @Override
+    public void encode(BsonWriter writer, Content content, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (content.getId() != null) {
+            writer.writeObjectId("_id", content.getId());
+        }
+        writer.writeString(EntityCodecs.DISCRIMINATOR_KEY, Content.class.getSimpleName());
+        EntityCodecs.writeString(writer, "title", content.getTitle());
+        EntityCodecs.writeString(writer, "genre", content.getGenre());
+        EntityCodecs.writeString(writer, "description", content.getDescription());
+        EntityCodecs.writeString(writer, "status", content.getStatus());
+        if (content.getReleaseDate() != null) {
+            writer.writeName("releaseDate");
+            localDateCodec.encode(writer, content.getReleaseDate(), encoderContext);
+        }
+        EntityCodecs.writeString(writer, "photoURL", content.getPhotoURL());
+        EntityCodecs.writeString(writer, "ageRating", content.getAgeRating());
+        if (content.getScoreRating() != null) {
+            writer.writeInt32("scoreRating", content.getScoreRating());
+        }
+        EntityCodecs.writeString(writer, "type", content.getType());
+        EntityCodecs.writeObjectIdList(writer, "reviews", content.getReviews());
+        EntityCodecs.writeObjectIdList(writer, "celebrities", content.getCelebrities());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Content decode(BsonReader reader, DecoderContext decoderContext) {
+        Content content = new Content();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (name) {
+                case "_id":
+                    content.setId(EntityCodecs.readObjectId(reader));
+                    break;
+                case "title":
+                    content.setTitle(EntityCodecs.readString(reader));
+                    break;
+                case "genre":
+                    content.setGenre(EntityCodecs.readString(reader));
+                    break;
+                case "description":
+                    content.setDescription(EntityCodecs.readString(reader));
+                    break;
+                case "status":
+                    content.setStatus(EntityCodecs.readString(reader));
+                    break;
+                case "releaseDate":
+                    content.setReleaseDate(LocalDateCodec.read(reader));
+                    break;
+                case "photoURL":
+                    content.setPhotoURL(EntityCodecs.readString(reader));
+                    break;
+                case "ageRating":
+                    content.setAgeRating(EntityCodecs.readString(reader));
+                    break;
+                case "scoreRating":
+                    content.setScoreRating(EntityCodecs.readInteger(reader));
+                    break;
+                case "type":
+                    content.setType(EntityCodecs.readString(reader));
+                    break;
+                case "reviews":
+                    content.setReviews(EntityCodecs.readObjectIdList(reader));
+                    break;
+                case "celebrities":
+                    content.setCelebrities(EntityCodecs.readObjectIdList(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return content;
+    }
+
+    @Override
+    public Class<Content> getEncoderClass() {
+        return Content.class;
+    }
+
+    @Override
+    public Content generateIdIfAbsentFromDocument(Content content) {
+        if (content.getId() == null) {
+            content.setId(new ObjectId());
+        }
+        return content;
+    }
+
+    @Override
+    public boolean documentHasId(Content content) {
+        return content.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Content content) {
+        if (content.getId() == null) {
+            throw new IllegalStateException("The content does not contain an _id");
+        }
+        return new BsonObjectId(content.getId());
+    }
+}
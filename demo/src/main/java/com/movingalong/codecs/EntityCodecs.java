@@ -0,0 +1,150 @@
+package com.movingalong.codecs;
+
+import static org.bson.codecs.configuration.CodecRegistries.fromCodecs;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.ObjectId;
+
+import com.mongodb.MongoClientSettings;
+import com.movingalong.utils.AppConfig;
+
+/**
+ * Registry of the hand-written entity codecs, plus the low level read and
+ * write helpers they share.
+ * The codecs produce the same document layout as Morphia (field names,
+ * "_t" discriminator holding the simple class name, omitted nulls and empty
+ * lists), so documents written by either side can be read by the other.
+ */
+public final class EntityCodecs {
+    public static final String CODECS = "movingalong.codecs";
+
+    static final String DISCRIMINATOR_KEY = "_t";
+
+    /**
+     * Initial capacity of decoded reference lists. BSON arrays carry no element
+     * count, so the lists are sized for the common case instead.
+     */
+    static final int LIST_CAPACITY = 8;
+
+    private static final CodecRegistry REGISTRY = fromRegistries(
+            fromCodecs(new ContentCodec(), new UserCodec(), new LocalDateCodec()),
+            MongoClientSettings.getDefaultCodecRegistry());
+
+    private EntityCodecs() {
+    }
+
+    /**
+     * Returns true if reads should decode entities with the hand-written codecs
+     * instead of the reflective mappers.
+     */
+    public static boolean isEnabled() {
+        return "handwritten".equalsIgnoreCase(AppConfig.getString(CODECS, "morphia"));
+    }
+
+    /**
+     * Returns a registry holding the Content, User and LocalDate codecs, backed
+     * by the driver's default registry.
+     */
+    public static CodecRegistry getCodecRegistry() {
+        return REGISTRY;
+    }
+
+    static String readString(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.STRING) {
+            return reader.readString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    static Integer readInteger(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return (int) reader.readInt64();
+            case DOUBLE:
+                return (int) reader.readDouble();
+            default:
+                reader.skipValue();
+                return null;
+        }
+    }
+
+    static ObjectId readObjectId(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.OBJECT_ID) {
+            return reader.readObjectId();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    static List<ObjectId> readObjectIdList(BsonReader reader) {
+        List<ObjectId> list = new ArrayList<>(LIST_CAPACITY);
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            reader.skipValue();
+            return list;
+        }
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            ObjectId id = readObjectId(reader);
+            if (id != null) {
+                list.add(id);
+            }
+        }
+        reader.readEndArray();
+        return list;
+    }
+
+    static List<String> readStringList(BsonReader reader) {
+        List<String> list = new ArrayList<>(LIST_CAPACITY);
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            reader.skipValue();
+            return list;
+        }
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String value = readString(reader);
+            if (value != null) {
+                list.add(value);
+            }
+        }
+        reader.readEndArray();
+        return list;
+    }
+
+    static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    static void writeObjectIdList(BsonWriter writer, String name, List<ObjectId> values) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        writer.writeStartArray(name);
+        for (ObjectId value : values) {
+            writer.writeObjectId(value);
+        }
+        writer.writeEndArray();
+    }
+
+    static void writeStringList(BsonWriter writer, String name, List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        writer.writeStartArray(name);
+        for (String value : values) {
+            writer.writeString(value);
+        }
+        writer.writeEndArray();
+    }
+}
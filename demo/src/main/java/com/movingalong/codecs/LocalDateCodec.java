@@ -0,0 +1,57 @@
+package com.movingalong.codecs;
+
+import java.time.LocalDate;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Codec storing a LocalDate as a BSON date at midnight UTC, the same layout
+ * the driver's JSR-310 codec uses. Decoding is done with plain epoch-day
+ * arithmetic instead of going through Instant and ZonedDateTime.
+ */
+public class LocalDateCodec implements Codec<LocalDate> {
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    @Override
+    public void encode(BsonWriter writer, LocalDate value, EncoderContext encoderContext) {
+        writer.writeDateTime(value.toEpochDay() * MILLIS_PER_DAY);
+    }
+
+    @Override
+    public LocalDate decode(BsonReader reader, DecoderContext decoderContext) {
+        return read(reader);
+    }
+
+    @Override
+    public Class<LocalDate> getEncoderClass() {
+        return LocalDate.class;
+    }
+
+    /**
+     * Reads a LocalDate from the current value of the reader. Dates stored as
+     * "yyyy-MM-dd" strings are accepted as well.
+     *
+     * @param reader The reader positioned on the value.
+     * @return the decoded LocalDate, or null for a BSON null.
+     */
+    static LocalDate read(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        switch (type) {
+            case DATE_TIME:
+                return LocalDate.ofEpochDay(Math.floorDiv(reader.readDateTime(), MILLIS_PER_DAY));
+            case STRING:
+                return LocalDate.parse(reader.readString());
+            case NULL:
+                reader.readNull();
+                return null;
+            default:
+                reader.skipValue();
+                return null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.movingalong.codecs;
+
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import com.movingalong.entities.User;
+
+/**
+ * Hand-written codec for {@link User}, reading fields straight from the
+ * BsonReader without going through Morphia's reflective mapper.
+ */
+public class UserCodec implements CollectibleCodec<User> {
+
+    @Override
+    public void encode(BsonWriter writer, User user, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (user.getId() != null) {
+            writer.writeObjectId("_id", user.getId());
+        }
+        writer.writeString(EntityCodecs.DISCRIMINATOR_KEY, User.class.getSimpleName());
+        EntityCodecs.writeString(writer, "username", user.getUsername());
+        EntityCodecs.writeString(writer, "dateBirth", user.getDateBirth());
+        EntityCodecs.writeString(writer, "createdAt", user.getCreatedAt());
+        EntityCodecs.writeString(writer, "email", user.getEmail());
+        EntityCodecs.writeString(writer, "password", user.getPassword());
+        EntityCodecs.writeString(writer, "photoURL", user.getPhotoURL());
+        EntityCodecs.writeStringList(writer, "reviews", user.getReviews());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public User decode(BsonReader reader, DecoderContext decoderContext) {
+        User user = new User();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (name) {
+                case "_id":
+                    user.setId(EntityCodecs.readObjectId(reader));
+                    break;
+                case "username":
+                    user.setUsername(EntityCodecs.readString(reader));
+                    break;
+                case "dateBirth":
+                    user.setDateBirth(EntityCodecs.readString(reader));
+                    break;
+                case "createdAt":
+                    user.setCreatedAt(EntityCodecs.readString(reader));
+                    break;
+                case "email":
+                    user.setEmail(EntityCodecs.readString(reader));
+                    break;
+                case "password":
+                    user.setPassword(EntityCodecs.readString(reader));
+                    break;
+                case "photoURL":
+                    user.setPhotoURL(EntityCodecs.readString(reader));
+                    break;
+                case "reviews":
+                    user.setReviews(EntityCodecs.readStringList(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return user;
+    }
+
+    @Override
+    public Class<User> getEncoderClass() {
+        return User.class;
+    }
+
+    @Override
+    public User generateIdIfAbsentFromDocument(User user) {
+        if (user.getId() == null) {
+            user.setId(new ObjectId());
+        }
+        return user;
+    }
+
+    @Override
+    public boolean documentHasId(User user) {
+        return user.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(User user) {
+        if (user.getId() == null) {
+            throw new IllegalStateException("The user does not contain an _id");
+        }
+        return new BsonObjectId(user.getId());
+    }
+}
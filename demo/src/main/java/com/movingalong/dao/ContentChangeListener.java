@@ -0,0 +1,36 @@
+package com.movingalong.dao;
+
+import org.bson.types.ObjectId;
+
+import com.movingalong.entities.Content;
+
+/**
+ * Receives notifications of the writes made through {@link ContentDAO}, so
+ * in-memory structures derived from the catalog can be kept up to date.
+ * Listeners are called on the writing thread after the write succeeded and
+ * should return quickly.
+ */
+public interface ContentChangeListener {
+    /**
+     * Called after a Content item has been added.
+     *
+     * @param content The saved Content, with its ObjectId set.
+     */
+    void contentAdded(Content content);
+
+    /**
+     * Called after a Content item has been updated. Updates replace the stored
+     * document, so the new Content may carry a different ObjectId.
+     *
+     * @param oldId   The ObjectId the Content item had before the update.
+     * @param content The saved Content, with its ObjectId set.
+     */
+    void contentUpdated(ObjectId oldId, Content content);
+
+    /**
+     * Called after a Content item has been deleted.
+     *
+     * @param id The ObjectId of the deleted Content item.
+     */
+    void contentDeleted(ObjectId id);
+}
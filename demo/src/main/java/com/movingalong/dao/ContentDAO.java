@@ -1,18 +1,34 @@
 package com.movingalong.dao;
 
 import dev.morphia.Datastore;
+import dev.morphia.query.MorphiaCursor;
 
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Updates;
 import com.mongodb.client.result.DeleteResult;
 import org.bson.Document;
 import org.bson.types.ObjectId;
+import com.movingalong.catalog.ContentCache;
+import com.movingalong.codecs.EntityCodecs;
 import com.movingalong.entities.Content;
-import com.movingalong.entities.User;
+import com.movingalong.helpers.SingleFlight;
+import com.movingalong.utils.AppConfig;
 import com.movingalong.utils.UtilsDB;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object (DAO) for managing Content entities in MongoDB.
@@ -20,7 +36,25 @@ import java.util.Optional;
 public class ContentDAO {
     private final UtilsDB utils;
     private Datastore datastore;
+    private MongoCollection<Content> codecCollection;
     private static final Logger logger = Logger.getLogger(ContentDAO.class.getName());
+    private static final List<ContentChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private static final long COALESCING_TIMEOUT_MILLIS = AppConfig.getLong("movingalong.coalescing.timeoutMillis",
+            5000);
+    /**
+     * The field stamped by the writes that change a document in place rather
+     * than replacing it. It is not part of the entity.
+     */
+    public static final String UPDATED_AT = "updatedAt";
+    private static final int ID_BATCH_SIZE = AppConfig.getInt("movingalong.reconcile.batchSize", 1000);
+
+    /**
+     * Concurrent identical lookups share one query and its result, which is why
+     * returned Content objects must be treated as read-only.
+     */
+    private static final SingleFlight<ObjectId, Content> idLookups = new SingleFlight<>(COALESCING_TIMEOUT_MILLIS);
+    private static final SingleFlight<String, List<Content>> titleLookups = new SingleFlight<>(
+            COALESCING_TIMEOUT_MILLIS);
 
     /**
      * Constructor for ContentDAO.
@@ -29,6 +63,41 @@ public class ContentDAO {
     public ContentDAO() {
         this.utils = new UtilsDB();
         this.datastore = utils.getDatastore();
+        if (EntityCodecs.isEnabled() && datastore != null) {
+            this.codecCollection = datastore.getDatabase().getCollection("contents", Content.class)
+                    .withCodecRegistry(EntityCodecs.getCodecRegistry());
+        }
+    }
+
+    /**
+     * Registers a listener notified of every write made through any ContentDAO.
+     *
+     * @param listener The listener to register.
+     */
+    public static void addChangeListener(ContentChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener previously added with addChangeListener.
+     *
+     * @param listener The listener to remove.
+     */
+    public static void removeChangeListener(ContentChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Reports Content items upserted in bulk directly through the driver, such
+     * as by a restore, to the registered listeners. Each one is reported as an
+     * update that kept its ObjectId, whether it replaced a stored item or not.
+     *
+     * @param contents The upserted Content items, with their ObjectIds set.
+     */
+    public static void notifyContentsReplaced(List<Content> contents) {
+        for (Content content : contents) {
+            notifyListeners(listener -> listener.contentUpdated(content.getId(), content));
+        }
     }
 
     /**
@@ -38,7 +107,7 @@ public class ContentDAO {
      */
     public List<Content> getListContent() {
         try {
-            List<Content> contentlist = datastore.find(Content.class).iterator().toList();
+            List<Content> contentlist = findContents(new Document());
 
             return contentlist;
         } catch (Exception e) {
@@ -56,6 +125,7 @@ public class ContentDAO {
         if (validateContent(content)) {
             try {
                 datastore.save(content);
+                notifyListeners(listener -> listener.contentAdded(content));
             } catch (Exception e) {
                 logger.log(Level.SEVERE, "Error in addContent", e);
             }
@@ -77,6 +147,7 @@ public class ContentDAO {
                 datastore.delete(oldContent);
 
                 datastore.save(content);
+                notifyListeners(listener -> listener.contentUpdated(id, content));
 
                 return true;
             } catch (Exception e) {
@@ -96,8 +167,16 @@ public class ContentDAO {
      */
     public Optional<Content> getContent(ObjectId id) {
         try {
+            ContentCache cache = ContentCache.getInstance();
+            Content content = cache.get(id);
+            if (content != null) {
+                return Optional.of(content);
+            }
             Document query = new Document("_id", id);
-            Content content = datastore.find(Content.class, query).first();
+            content = idLookups.execute(id, () -> findFirstContent(query));
+            if (content != null) {
+                cache.put(content);
+            }
 
             return Optional.ofNullable(content);
         } catch (Exception e) {
@@ -117,15 +196,200 @@ public class ContentDAO {
         try {
 
             Document query = new Document("title", title);
-            List<Content> listContents = datastore.find(Content.class, query).iterator().toList();
+            List<Content> listContents = titleLookups.execute(title, () -> findContents(query));
 
             return Optional.ofNullable(listContents);
         } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error in getContent", e);
+            logger.log(Level.SEVERE, "Error in getContentByTitle", e);
             return Optional.empty();
         }
     }
 
+    /**
+     * Streams every Content item of the database through the given consumer
+     * without materializing the whole collection.
+     *
+     * @param consumer The consumer receiving each Content item.
+     * @return true if the scan completed, false if an error occurred.
+     */
+    public boolean forEachContent(Consumer<Content> consumer) {
+        try (MorphiaCursor<Content> cursor = datastore.find(Content.class).iterator()) {
+            while (cursor.hasNext()) {
+                consumer.accept(cursor.next());
+            }
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error in forEachContent", e);
+            return false;
+        }
+    }
+
+    /**
+     * Streams the Content items created or changed since the given time.
+     * Updates made through this DAO replace the stored document, so they are
+     * found by ObjectId; the writes that change a document in place, releases
+     * and restores, stamp its updatedAt field instead.
+     *
+     * @param since    The ObjectId below which unchanged items are skipped.
+     * @param consumer The consumer receiving each Content item.
+     * @return true if the scan completed, false if an error occurred.
+     */
+    public boolean forEachContentSince(ObjectId since, Consumer<Content> consumer) {
+        Document query = new Document("$or", List.of(new Document("_id", new Document("$gte", since)),
+                new Document(UPDATED_AT, new Document("$gte", since.getDate()))));
+        try (MorphiaCursor<Content> cursor = datastore.find(Content.class, query).iterator()) {
+            while (cursor.hasNext()) {
+                consumer.accept(cursor.next());
+            }
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error in forEachContentSince", e);
+            return false;
+        }
+    }
+
+    /**
+     * Streams those of the given ObjectIds that still belong to a Content
+     * item, with one query per movingalong.reconcile.batchSize IDs answered
+     * from the _id index.
+     *
+     * @param ids      The ObjectIds to check.
+     * @param consumer The consumer receiving each ObjectId found.
+     * @return true if every ObjectId was checked, false if an error occurred.
+     */
+    public boolean forEachExistingContentId(Collection<ObjectId> ids, Consumer<ObjectId> consumer) {
+        List<ObjectId> batch = new ArrayList<>(Math.min(ID_BATCH_SIZE, ids.size()));
+        try {
+            for (ObjectId id : ids) {
+                batch.add(id);
+                if (batch.size() == ID_BATCH_SIZE) {
+                    findExistingIds(batch, consumer);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                findExistingIds(batch, consumer);
+            }
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error in forEachExistingContentId", e);
+            return false;
+        }
+    }
+
+    private void findExistingIds(List<ObjectId> ids, Consumer<ObjectId> consumer) {
+        try (MongoCursor<Document> cursor = datastore.getDatabase().getCollection("contents")
+                .find(new Document("_id", new Document("$in", ids)))
+                .projection(Projections.include("_id")).iterator()) {
+            while (cursor.hasNext()) {
+                consumer.accept(cursor.next().getObjectId("_id"));
+            }
+        }
+    }
+
+    /**
+     * Streams the ObjectId of every Content item, fetching nothing else.
+     *
+     * @param consumer The consumer receiving each ObjectId.
+     * @return true if the scan completed, false if an error occurred.
+     */
+    public boolean forEachContentId(Consumer<ObjectId> consumer) {
+        try (MongoCursor<Document> cursor = datastore.getDatabase().getCollection("contents").find()
+                .projection(Projections.include("_id")).iterator()) {
+            while (cursor.hasNext()) {
+                consumer.accept(cursor.next().getObjectId("_id"));
+            }
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error in forEachContentId", e);
+            return false;
+        }
+    }
+
+    /**
+     * Creates the index serving {@link #forEachUpcomingRelease(BiConsumer)},
+     * if it does not exist yet.
+     */
+    public void ensureReleaseIndex() {
+        try {
+            datastore.getDatabase().getCollection("contents").createIndex(Indexes.ascending("status", "releaseDate"));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error in ensureReleaseIndex", e);
+        }
+    }
+
+    /**
+     * Creates the index serving the updatedAt half of
+     * {@link #forEachContentSince(ObjectId, Consumer)}, if it does not exist
+     * yet. It is sparse, as only documents changed in place carry the field.
+     */
+    public void ensureUpdatedAtIndex() {
+        try {
+            datastore.getDatabase().getCollection("contents").createIndex(Indexes.ascending(UPDATED_AT),
+                    new IndexOptions().sparse(true));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error in ensureUpdatedAtIndex", e);
+        }
+    }
+
+    /**
+     * Streams the ObjectId and release date of every Content item that has a
+     * release date but is not released yet, fetching nothing else.
+     *
+     * @param consumer The consumer receiving each ObjectId and release date.
+     * @return true if the scan completed, false if an error occurred.
+     */
+    public boolean forEachUpcomingRelease(BiConsumer<ObjectId, LocalDate> consumer) {
+        Document query = new Document("status", new Document("$ne", Content.RELEASED))
+                .append("releaseDate", new Document("$type", "date"));
+        try (MongoCursor<Document> cursor = datastore.getDatabase().getCollection("contents").find(query)
+                .projection(Projections.include("_id", "releaseDate")).iterator()) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                consumer.accept(document.getObjectId("_id"), toLocalDate(document.getDate("releaseDate")));
+            }
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error in forEachUpcomingRelease", e);
+            return false;
+        }
+    }
+
+    /**
+     * Marks as released, with a single update, those of the given Content
+     * items whose release date is on or before the given day and which are not
+     * released yet. Listeners are notified of each item released by this
+     * call: the update stamps a releaseToken unique to the call, and only the
+     * items carrying it are read back, so items released earlier or by
+     * another node are not reported again.
+     *
+     * @param ids   The ObjectIds of the Content items due.
+     * @param today The current day.
+     * @return the number of items released, or -1 if an error occurred.
+     */
+    public long releaseContents(Collection<ObjectId> ids, LocalDate today) {
+        try {
+            Document query = new Document("_id", new Document("$in", ids))
+                    .append("status", new Document("$ne", Content.RELEASED))
+                    .append("releaseDate", new Document("$lte", toDate(today)));
+            ObjectId token = new ObjectId();
+            long released = datastore.getDatabase().getCollection("contents")
+                    .updateMany(query, Updates.combine(Updates.set("status", Content.RELEASED),
+                            Updates.set("releaseToken", token), Updates.currentDate(UPDATED_AT)))
+                    .getModifiedCount();
+            if (released > 0) {
+                Document changed = new Document("_id", new Document("$in", ids)).append("releaseToken", token);
+                for (Content content : findContents(changed)) {
+                    notifyListeners(listener -> listener.contentUpdated(content.getId(), content));
+                }
+            }
+            return released;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error in releaseContents", e);
+            return -1;
+        }
+    }
+
     /**
      * Deletes a Content item from the database based on
      * 
@@ -135,16 +399,75 @@ public class ContentDAO {
     public boolean deleteContent(ObjectId id) {
         try {
             Document query = new Document("_id", id);
-            User oldContent = datastore.find(User.class, query).first();
+            Content oldContent = datastore.find(Content.class, query).first();
             DeleteResult result = datastore.delete(oldContent);
 
-            return result.getDeletedCount() > 0;
+            boolean deleted = result.getDeletedCount() > 0;
+            if (deleted) {
+                notifyListeners(listener -> listener.contentDeleted(id));
+            }
+            return deleted;
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error in deleteContent", e);
             return false;
         }
     }
 
+    /**
+     * Runs a query for Content items, decoding them with the hand-written codec
+     * when it is enabled and with Morphia otherwise.
+     *
+     * @param query The query to run.
+     * @return the matching Content objects.
+     */
+    private List<Content> findContents(Document query) {
+        if (codecCollection != null) {
+            return codecCollection.find(query).into(new ArrayList<>());
+        }
+        return datastore.find(Content.class, query).iterator().toList();
+    }
+
+    /**
+     * Runs a query for the first matching Content item, decoding it with the
+     * hand-written codec when it is enabled and with Morphia otherwise.
+     *
+     * @param query The query to run.
+     * @return the first matching Content object, or null if none matches.
+     */
+    private Content findFirstContent(Document query) {
+        if (codecCollection != null) {
+            return codecCollection.find(query).first();
+        }
+        return datastore.find(Content.class, query).first();
+    }
+
+    /**
+     * Converts a day to the BSON date at midnight UTC it is stored as.
+     */
+    private static Date toDate(LocalDate day) {
+        return new Date(day.toEpochDay() * 86_400_000L);
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return LocalDate.ofEpochDay(Math.floorDiv(date.getTime(), 86_400_000L));
+    }
+
+    /**
+     * Calls each registered listener, isolating the caller from listener
+     * failures.
+     *
+     * @param notification The call to make on each listener.
+     */
+    private static void notifyListeners(Consumer<ContentChangeListener> notification) {
+        for (ContentChangeListener listener : listeners) {
+            try {
+                notification.accept(listener);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Content change listener failed", e);
+            }
+        }
+    }
+
     /**
      * Validates a Content object to ensure it meets certain criteria before being
      * persisted to the database.
@@ -0,0 +1,92 @@
+package com.movingalong.dao;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.movingalong.entities.Content;
+import com.movingalong.helpers.Publishers;
+import com.movingalong.helpers.SingleFlight;
+import com.movingalong.utils.AppConfig;
+import com.movingalong.utils.ReactiveUtilsDB;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking counterpart of {@link ContentDAO} for read operations, built on
+ * the MongoDB Reactive Streams driver. Results are delivered as CompletionStages
+ * so no request thread is held while MongoDB answers.
+ */
+public class ReactiveContentDAO {
+    private final MongoCollection<Content> collection;
+    private final int batchSize;
+    private static final Logger logger = Logger.getLogger(ReactiveContentDAO.class.getName());
+    private static final long COALESCING_TIMEOUT_MILLIS = AppConfig.getLong("movingalong.coalescing.timeoutMillis",
+            5000);
+    private static final SingleFlight<ObjectId, Optional<Content>> idLookups = new SingleFlight<>(
+            COALESCING_TIMEOUT_MILLIS);
+    private static final SingleFlight<String, List<Content>> titleLookups = new SingleFlight<>(
+            COALESCING_TIMEOUT_MILLIS);
+
+    /**
+     * Constructor for ReactiveContentDAO.
+     * Binds the DAO to the shared reactive client.
+     */
+    public ReactiveContentDAO() {
+        this.collection = ReactiveUtilsDB.getDatabase().getCollection("contents", Content.class);
+        this.batchSize = AppConfig.getInt("movingalong.reactive.batchSize", 100);
+    }
+
+    /**
+     * Retrieves a list of all Content items from the database.
+     *
+     * @return a CompletionStage of the Content objects, or of an empty list if an
+     *         error occurs.
+     */
+    public CompletionStage<List<Content>> getListContent() {
+        return Publishers.toList(collection.find().batchSize(batchSize), batchSize)
+                .exceptionally(e -> {
+                    logger.log(Level.SEVERE, "Error in getListContent", e);
+                    return new ArrayList<>();
+                });
+    }
+
+    /**
+     * Retrieves a Content item from the database based on its ObjectId.
+     *
+     * @param id The ObjectId of the Content item.
+     * @return a CompletionStage of an Optional containing the Content object if
+     *         found, or an empty Optional otherwise.
+     */
+    public CompletionStage<Optional<Content>> getContent(ObjectId id) {
+        Document query = new Document("_id", id);
+        return idLookups.executeAsync(id, () -> Publishers.first(collection.find(query).first()))
+                .exceptionally(e -> {
+                    logger.log(Level.SEVERE, "Error in getContent", e);
+                    return Optional.empty();
+                });
+    }
+
+    /**
+     * Retrieves a list of Content items from the database with a specific title.
+     *
+     * @param title The title of the Content items to retrieve.
+     * @return a CompletionStage of an Optional containing the matching Content
+     *         objects, or an empty Optional if an error occurs.
+     */
+    public CompletionStage<Optional<List<Content>>> getContentByTitle(String title) {
+        Document query = new Document("title", title);
+        return titleLookups
+                .executeAsync(title, () -> Publishers.toList(collection.find(query).batchSize(batchSize), batchSize))
+                .thenApply(Optional::of)
+                .exceptionally(e -> {
+                    logger.log(Level.SEVERE, "Error in getContentByTitle", e);
+                    return Optional.empty();
+                });
+    }
+}
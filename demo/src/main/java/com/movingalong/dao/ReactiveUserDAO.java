@@ -0,0 +1,85 @@
+package com.movingalong.dao;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.movingalong.entities.User;
+import com.movingalong.helpers.Publishers;
+import com.movingalong.utils.AppConfig;
+import com.movingalong.utils.ReactiveUtilsDB;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking counterpart of {@link UserDAO} for read operations, built on the
+ * MongoDB Reactive Streams driver.
+ */
+public class ReactiveUserDAO {
+    private final MongoCollection<User> collection;
+    private final int batchSize;
+    private static final Logger logger = Logger.getLogger(ReactiveUserDAO.class.getName());
+
+    /**
+     * Constructor for ReactiveUserDAO.
+     * Binds the DAO to the shared reactive client.
+     */
+    public ReactiveUserDAO() {
+        this.collection = ReactiveUtilsDB.getDatabase().getCollection("users", User.class);
+        this.batchSize = AppConfig.getInt("movingalong.reactive.batchSize", 100);
+    }
+
+    public CompletionStage<List<User>> getListUsers() {
+        return Publishers.toList(collection.find().batchSize(batchSize), batchSize)
+                .exceptionally(e -> {
+                    logger.log(Level.SEVERE, "Error in getListUsers", e);
+                    return new ArrayList<>();
+                });
+    }
+
+    /**
+     * Retrieves a User from the database based on its ObjectId.
+     *
+     * @param id The ObjectId of the user.
+     * @return a CompletionStage of an Optional containing the User object if
+     *         found, or an empty Optional otherwise.
+     */
+    public CompletionStage<Optional<User>> getUser(ObjectId id) {
+        return findFirst(new Document("_id", id), "getUser");
+    }
+
+    /**
+     * Retrieves a User from the database based on their email address.
+     *
+     * @param email The email of the user.
+     * @return a CompletionStage of an Optional containing the User object if
+     *         found, or an empty Optional otherwise.
+     */
+    public CompletionStage<Optional<User>> getUserByEmail(String email) {
+        return findFirst(new Document("email", email), "getUserByEmail");
+    }
+
+    /**
+     * Retrieves a User from the database based on its username.
+     *
+     * @param username The username of the user.
+     * @return a CompletionStage of an Optional containing the User object if
+     *         found, or an empty Optional otherwise.
+     */
+    public CompletionStage<Optional<User>> getUserByUsername(String username) {
+        return findFirst(new Document("username", username), "getUserByUsername");
+    }
+
+    private CompletionStage<Optional<User>> findFirst(Document query, String operation) {
+        return Publishers.first(collection.find(query).first())
+                .exceptionally(e -> {
+                    logger.log(Level.SEVERE, "Error in " + operation, e);
+                    return Optional.empty();
+                });
+    }
+}
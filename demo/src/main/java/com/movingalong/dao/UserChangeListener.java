@@ -0,0 +1,36 @@
+package com.movingalong.dao;
+
+import org.bson.types.ObjectId;
+
+import com.movingalong.entities.User;
+
+/**
+ * Receives notifications of the writes made through {@link UserDAO}, so
+ * in-memory structures derived from the users can be kept up to date.
+ * Listeners are called on the writing thread after the write succeeded and
+ * should return quickly.
+ */
+public interface UserChangeListener {
+    /**
+     * Called after a User has been added.
+     *
+     * @param user The saved User, with its ObjectId set.
+     */
+    void userAdded(User user);
+
+    /**
+     * Called after a User has been updated. Updates replace the stored
+     * document, so the new User may carry a different ObjectId.
+     *
+     * @param oldId The ObjectId the User had before the update.
+     * @param user  The saved User, with its ObjectId set.
+     */
+    void userUpdated(ObjectId oldId, User user);
+
+    /**
+     * Called after a User has been deleted.
+     *
+     * @param id The ObjectId of the deleted User.
+     */
+    void userDeleted(ObjectId id);
+}
@@ -1,10 +1,14 @@
 package com.movingalong.dao;
 
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.result.DeleteResult;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.mindrot.jbcrypt.BCrypt;
 
+import com.movingalong.codecs.EntityCodecs;
 import com.movingalong.entities.User;
 import com.movingalong.utils.UtilsDB;
 
@@ -16,6 +20,9 @@ import java.util.logging.Logger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object (DAO) for managing User entities in MongoDB.
@@ -24,7 +31,9 @@ public class UserDAO {
 
     private final UtilsDB utils;
     private Datastore datastore;
+    private MongoCollection<User> codecCollection;
     private static final Logger logger = Logger.getLogger(UserDAO.class.getName());
+    private static final List<UserChangeListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructor for UserDAO.
@@ -33,11 +42,60 @@ public class UserDAO {
     public UserDAO() {
         this.utils = new UtilsDB();
         this.datastore = utils.getDatastore();
+        if (EntityCodecs.isEnabled() && datastore != null) {
+            this.codecCollection = datastore.getDatabase().getCollection("users", User.class)
+                    .withCodecRegistry(EntityCodecs.getCodecRegistry());
+        }
+    }
+
+    /**
+     * Registers a listener notified of every write made through any UserDAO.
+     *
+     * @param listener The listener to register.
+     */
+    public static void addChangeListener(UserChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener previously added with addChangeListener.
+     *
+     * @param listener The listener to remove.
+     */
+    public static void removeChangeListener(UserChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Reports Users inserted in bulk directly through the driver, such as by
+     * the user importer, to the registered listeners.
+     *
+     * @param users The inserted Users, with their ObjectIds set.
+     */
+    public static void notifyUsersAdded(List<User> users) {
+        for (User user : users) {
+            notifyListeners(listener -> listener.userAdded(user));
+        }
+    }
+
+    /**
+     * Reports Users upserted in bulk directly through the driver, such as by a
+     * restore, to the registered listeners. Each one is reported as an update
+     * that kept its ObjectId, whether it replaced a stored User or not.
+     *
+     * @param users The upserted Users, with their ObjectIds set.
+     */
+    public static void notifyUsersReplaced(List<User> users) {
+        for (User user : users) {
+            notifyListeners(listener -> listener.userUpdated(user.getId(), user));
+        }
     }
 
     public List<User> getListUsers() {
         try {
-            List<User> userList = datastore.find(User.class).iterator().toList();
+            List<User> userList = codecCollection != null
+                    ? codecCollection.find().into(new ArrayList<>())
+                    : datastore.find(User.class).iterator().toList();
 
             return userList;
         } catch (Exception e) {
@@ -55,6 +113,7 @@ public class UserDAO {
         if (validateUser(user)) {
             try {
                 datastore.save(user); 
+                notifyListeners(listener -> listener.userAdded(user));
             } catch (Exception e) {
                 logger.log(Level.SEVERE, "Error in addUser", e);
             }
@@ -76,6 +135,7 @@ public class UserDAO {
                 datastore.delete(oldUser);
 
                 datastore.save(user);
+                notifyListeners(listener -> listener.userUpdated(id, user));
 
                 return true;
             } catch (Exception e) {
@@ -96,7 +156,7 @@ public class UserDAO {
     public Optional<User> getUser(ObjectId id) {
         try {
             Document query = new Document("_id", id);
-            User user = datastore.find(User.class, query).first();
+            User user = findFirstUser(query);
 
             return Optional.ofNullable(user);
         } catch (Exception e) {
@@ -115,7 +175,7 @@ public class UserDAO {
     public Optional<User> getUserByEmail(String email) {
         try {
             Document query = new Document("email", email);
-            User user = datastore.find(User.class, query).first();
+            User user = findFirstUser(query);
 
             return Optional.ofNullable(user);
         } catch (Exception e) {
@@ -134,7 +194,7 @@ public class UserDAO {
     public Optional<User> getUserByUsername(String username) {
         try {
             Document query = new Document("username", username);
-            User user = datastore.find(User.class, query).first();
+            User user = findFirstUser(query);
 
             return Optional.ofNullable(user);
         } catch (Exception e) {
@@ -143,6 +203,46 @@ public class UserDAO {
         }
     }
 
+    /**
+     * Streams the username and email of every User through the given consumer,
+     * fetching only those two fields.
+     *
+     * @param consumer The consumer receiving each username and email; either
+     *                 may be null.
+     * @return true if the scan completed, false if an error occurred.
+     */
+    public boolean forEachUsernameAndEmail(BiConsumer<String, String> consumer) {
+        return forEachUsernameAndEmail(new Document(), consumer);
+    }
+
+    /**
+     * Streams the username and email of every User whose ObjectId was created
+     * at or after the given one. This includes the Users updated since then
+     * with a new ObjectId, as the REST updates do.
+     *
+     * @param since    The lowest ObjectId to include.
+     * @param consumer The consumer receiving each username and email; either
+     *                 may be null.
+     * @return true if the scan completed, false if an error occurred.
+     */
+    public boolean forEachUsernameAndEmailSince(ObjectId since, BiConsumer<String, String> consumer) {
+        return forEachUsernameAndEmail(new Document("_id", new Document("$gte", since)), consumer);
+    }
+
+    private boolean forEachUsernameAndEmail(Document query, BiConsumer<String, String> consumer) {
+        try (MongoCursor<Document> cursor = datastore.getDatabase().getCollection("users").find(query)
+                .projection(Projections.include("username", "email")).iterator()) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                consumer.accept(document.getString("username"), document.getString("email"));
+            }
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error in forEachUsernameAndEmail", e);
+            return false;
+        }
+    }
+
     /**
      * Deletes a User from the database.
      *
@@ -155,7 +255,11 @@ public class UserDAO {
             User oldUser = datastore.find(User.class, query).first();
             DeleteResult result = datastore.delete(oldUser);
 
-            return result.getDeletedCount() > 0;
+            boolean deleted = result.getDeletedCount() > 0;
+            if (deleted) {
+                notifyListeners(listener -> listener.userDeleted(id));
+            }
+            return deleted;
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error in deleteUser", e);
             return false;
@@ -191,6 +295,36 @@ public class UserDAO {
         }
     }
 
+    /**
+     * Runs a query for the first matching User, decoding it with the
+     * hand-written codec when it is enabled and with Morphia otherwise.
+     *
+     * @param query The query to run.
+     * @return the first matching User, or null if none matches.
+     */
+    private User findFirstUser(Document query) {
+        if (codecCollection != null) {
+            return codecCollection.find(query).first();
+        }
+        return datastore.find(User.class, query).first();
+    }
+
+    /**
+     * Calls each registered listener, isolating the caller from listener
+     * failures.
+     *
+     * @param notification The call to make on each listener.
+     */
+    private static void notifyListeners(Consumer<UserChangeListener> notification) {
+        for (UserChangeListener listener : listeners) {
+            try {
+                notification.accept(listener);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "User change listener failed", e);
+            }
+        }
+    }
+
     /**
      * Validates a User object to ensure it meets certain criteria.
      * 
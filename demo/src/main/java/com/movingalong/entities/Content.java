@@ -20,6 +20,12 @@ import dev.morphia.annotations.Id;
 @Data
 @Entity("contents")
 public class Content {
+    /**
+     * The status of content that is out. Content with an earlier status and a
+     * release date is moved to it on that date.
+     */
+    public static final String RELEASED = "Released";
+
     /**
      * The _id of the content.
      */
@@ -0,0 +1,94 @@
+package com.movingalong.helpers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Concurrency limit that adapts to observed latency with additive increase and
+ * multiplicative decrease (AIMD), as TCP congestion control does.
+ * Every completion under the target latency raises the limit by 1/limit, i.e.
+ * by about one per round of requests; a completion over the target cuts it by
+ * the backoff ratio, at most once per target latency so that a single slow
+ * round does not collapse it.
+ */
+public class AdaptiveLimit {
+    private static final double BACKOFF = 0.9;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limitBits;
+    private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime());
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetNanos;
+
+    /**
+     * Constructor for AdaptiveLimit.
+     *
+     * @param initialLimit The starting limit.
+     * @param minLimit     The lowest the limit can go.
+     * @param maxLimit     The highest the limit can go.
+     * @param targetMillis The latency above which the limit decreases.
+     */
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, long targetMillis) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetNanos = targetMillis * 1_000_000;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(initialLimit));
+    }
+
+    /**
+     * Takes a slot if fewer calls than the limit are in flight.
+     *
+     * @return true if the call may proceed, in which case release() must be
+     *         called when it completes.
+     */
+    public boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > getLimit()) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a slot and adjusts the limit.
+     *
+     * @param latencyNanos The latency of the completed call.
+     * @param sample       Whether the latency reflects the resource the limit
+     *                     protects; if not, the limit is left unchanged.
+     */
+    public void release(long latencyNanos, boolean sample) {
+        inFlight.decrementAndGet();
+        if (!sample) {
+            return;
+        }
+        if (latencyNanos > targetNanos) {
+            long now = System.nanoTime();
+            long last = lastDecrease.get();
+            if (now - last >= targetNanos && lastDecrease.compareAndSet(last, now)) {
+                update(limit -> limit * BACKOFF);
+            }
+        } else {
+            update(limit -> limit + 1 / limit);
+        }
+    }
+
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void update(DoubleUnaryOperator change) {
+        while (true) {
+            long bits = limitBits.get();
+            double next = Math.max(minLimit, Math.min(maxLimit, change.applyAsDouble(Double.longBitsToDouble(bits))));
+            if (limitBits.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+}
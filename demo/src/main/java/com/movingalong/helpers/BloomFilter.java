@@ -0,0 +1,102 @@
+package com.movingalong.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.codec.digest.MurmurHash3;
+
+/**
+ * Thread-safe Bloom filter over strings.
+ * A negative answer from {@link #mightContain(String)} is always right, a
+ * positive one is wrong with roughly the false-positive rate the filter was
+ * sized for. Bits are set with compare-and-set, so concurrent puts never lose
+ * each other and readers never block.
+ */
+public class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Constructor for BloomFilter.
+     *
+     * @param expectedInsertions The number of values the filter is sized for.
+     * @param falsePositiveRate  The false-positive rate wanted at that size.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        double p = Math.min(Math.max(falsePositiveRate, 1e-9), 0.5);
+        long bits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * Constructor for BloomFilter, restoring a filter from the bits of another.
+     *
+     * @param words     The bits, as returned by {@link #toWords()}.
+     * @param hashCount The number of hash functions of that filter.
+     */
+    public BloomFilter(long[] words, int hashCount) {
+        this.words = new AtomicLongArray(words);
+        this.bitCount = (long) words.length * 64;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Returns a copy of the bits of the filter. Values added concurrently may
+     * or may not be in it.
+     */
+    public long[] toWords() {
+        long[] copy = new long[words.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = words.get(i);
+        }
+        return copy;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * Adds a value to the filter.
+     *
+     * @param value The value to add.
+     */
+    public void put(String value) {
+        long[] hash = hash(value);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash[0] + i * hash[1], bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                word = words.get(index);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a value may have been added to the filter.
+     *
+     * @param value The value to look up.
+     * @return false if the value was definitely never added, true otherwise.
+     */
+    public boolean mightContain(String value) {
+        long[] hash = hash(value);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash[0] + i * hash[1], bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] hash(String value) {
+        return MurmurHash3.hash128x64(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,97 @@
+package com.movingalong.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Adapters from Reactive Streams publishers to CompletionStages.
+ */
+public class Publishers {
+    /**
+     * Completes with the first element emitted by the publisher, if any.
+     *
+     * @param publisher The publisher to subscribe to.
+     * @return a CompletionStage holding an Optional of the first element.
+     */
+    public static <T> CompletionStage<Optional<T>> first(Publisher<T> publisher) {
+        CompletableFuture<Optional<T>> future = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<T>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(T item) {
+                if (future.complete(Optional.ofNullable(item))) {
+                    subscription.cancel();
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(Optional.empty());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Collects every element emitted by the publisher into a list. Elements are
+     * requested in batches so the driver never buffers more than one batch ahead.
+     *
+     * @param publisher The publisher to subscribe to.
+     * @param batchSize The number of elements requested at a time.
+     * @return a CompletionStage holding the collected elements.
+     */
+    public static <T> CompletionStage<List<T>> toList(Publisher<T> publisher, int batchSize) {
+        CompletableFuture<List<T>> future = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<T>() {
+            private final List<T> items = new ArrayList<>();
+            private Subscription subscription;
+            private int outstanding;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                outstanding = batchSize;
+                s.request(batchSize);
+            }
+
+            @Override
+            public void onNext(T item) {
+                items.add(item);
+                if (--outstanding == 0) {
+                    outstanding = batchSize;
+                    subscription.request(batchSize);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(items);
+            }
+        });
+        return future;
+    }
+}
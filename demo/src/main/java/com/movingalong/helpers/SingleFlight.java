@@ -0,0 +1,97 @@
+package com.movingalong.helpers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into a single execution.
+ * The first caller for a key runs the loader; callers arriving while it is in
+ * flight wait, for at most the configured timeout, and receive the same result
+ * or the same failure. Nothing is kept once the call completes, so this is not
+ * a cache: the next call after completion runs the loader again.
+ *
+ * @param <K> the type of the keys identifying identical calls.
+ * @param <V> the type of the results.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+
+    /**
+     * Constructor for SingleFlight.
+     *
+     * @param timeoutMillis The maximum time a caller waits for a call started by
+     *                      another caller.
+     */
+    public SingleFlight(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Runs the loader, or joins the call already in flight for the same key.
+     *
+     * @param key    The key identifying the call.
+     * @param loader The blocking call to run if none is in flight.
+     * @return the result of the call.
+     * @throws Exception the failure of the call, or a TimeoutException if the
+     *                   in-flight call did not complete in time.
+     */
+    public V execute(K key, Callable<V> loader) throws Exception {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            try {
+                return existing.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            }
+        }
+        try {
+            V result = loader.call();
+            call.complete(result);
+            return result;
+        } catch (Exception | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Starts the asynchronous loader, or joins the call already in flight for
+     * the same key.
+     *
+     * @param key    The key identifying the call.
+     * @param loader The asynchronous call to start if none is in flight.
+     * @return a CompletionStage of the result of the call. Joining callers see
+     *         it fail with a TimeoutException if it does not complete in time.
+     */
+    public CompletionStage<V> executeAsync(K key, Supplier<CompletionStage<V>> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            return existing.copy().orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        try {
+            loader.get().whenComplete((result, error) -> {
+                inFlight.remove(key, call);
+                if (error != null) {
+                    call.completeExceptionally(error);
+                } else {
+                    call.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+        }
+        return call.copy();
+    }
+}
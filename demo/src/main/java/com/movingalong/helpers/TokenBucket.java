@@ -0,0 +1,61 @@
+package com.movingalong.helpers;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket.
+ * Instead of a token count refilled by a timer, the bucket keeps the single
+ * time at which it will be full again (the generic cell rate algorithm): taking
+ * a token pushes that time forward by one refill interval, and a token is
+ * available as long as the time stays within the burst window from now. The
+ * state is one AtomicLong updated with compare-and-set.
+ */
+public class TokenBucket {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * Constructor for TokenBucket. The bucket starts full.
+     *
+     * @param perSecond The number of tokens refilled per second.
+     * @param burst     The capacity of the bucket.
+     */
+    public TokenBucket(double perSecond, int burst) {
+        if (perSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("The rate and the burst must be positive");
+        }
+        this.intervalNanos = (long) (1_000_000_000L / perSecond);
+        this.burstNanos = intervalNanos * burst;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise the time in nanoseconds until
+     *         one becomes available.
+     */
+    public long tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the bucket is full, i.e. has not been used for long
+     * enough to be dropped without changing any decision.
+     */
+    public boolean isFull() {
+        return fullAt.get() - System.nanoTime() <= 0;
+    }
+}
@@ -0,0 +1,181 @@
+package com.movingalong.restservices;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import com.movingalong.backup.NdjsonTransfer;
+import com.movingalong.utils.AppConfig;
+import com.movingalong.utils.QueryTracer;
+import com.movingalong.utils.UtilsDB;
+
+import dev.morphia.Datastore;
+
+/**
+ * RESTful service for administrative operations. The endpoints expose whole
+ * collections, password hashes included, and can overwrite any account, so
+ * they answer 404 unless movingalong.admin.enabled is set and an admin token
+ * is configured in movingalong.admin.token. Every request must then carry
+ * that token as "Authorization: Bearer &lt;token&gt;", or gets 401.
+ */
+@Path("/admin")
+public class AdminService {
+
+    private static final Logger logger = Logger.getLogger(AdminService.class.getName());
+    private static final String GZIP = "application/gzip";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String BEARER = "Bearer ";
+    private static final int MIN_TOKEN_LENGTH = 32;
+
+    @Context
+    private HttpHeaders headers;
+
+    /**
+     * Streams a collection as gzip-compressed NDJSON.
+     *
+     * @param collection The collection to export, "contents" or "users".
+     * @return a Response streaming the export.
+     */
+    @GET
+    @Path("/export/{collection}")
+    @Produces(GZIP)
+    public Response exportCollection(@PathParam("collection") String collection) {
+        Response denied = authorize();
+        if (denied != null) {
+            return denied;
+        }
+        if (!NdjsonTransfer.isTransferable(collection)) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Unknown collection").build();
+        }
+        // The 200 is committed once streaming starts, so the datastore is checked first
+        Datastore datastore = new UtilsDB().getDatastore();
+        if (datastore == null) {
+            return unavailable();
+        }
+        StreamingOutput stream = out -> new NdjsonTransfer(datastore.getDatabase())
+                .exportCollection(collection, out, true);
+        return Response.ok(stream)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + collection + ".ndjson.gz\"")
+                .build();
+    }
+
+    /**
+     * Upserts the documents of an NDJSON body, gzip-compressed or not, into a
+     * collection.
+     *
+     * @param collection  The collection to import into, "contents" or "users".
+     * @param contentType The media type of the body.
+     * @param body        The NDJSON body.
+     * @return a Response with the number of documents written.
+     */
+    @POST
+    @Path("/import/{collection}")
+    @Consumes({ GZIP, NDJSON })
+    public Response importCollection(@PathParam("collection") String collection,
+            @HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        Response denied = authorize();
+        if (denied != null) {
+            return denied;
+        }
+        if (!NdjsonTransfer.isTransferable(collection)) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Unknown collection").build();
+        }
+        Datastore datastore = new UtilsDB().getDatastore();
+        if (datastore == null) {
+            return unavailable();
+        }
+        try {
+            boolean gzip = contentType != null && contentType.startsWith(GZIP);
+            long count = new NdjsonTransfer(datastore.getDatabase()).importCollection(collection, body, gzip);
+            return Response.ok(count + " documents imported").build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error importing " + collection, e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error importing collection")
+                    .build();
+        }
+    }
+
+    /**
+     * Returns the counters of the rate limiter and the concurrency limit.
+     *
+     * @return a Response with the counters of {@link AdmissionFilter}.
+     */
+    @GET
+    @Path("/admission")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getAdmissionMetrics() {
+        Response denied = authorize();
+        if (denied != null) {
+            return denied;
+        }
+        return Response.ok(AdmissionFilter.metrics()).build();
+    }
+
+    /**
+     * Returns the slowest MongoDB commands seen in the last
+     * movingalong.slowquery.windowMinutes, with the shape of their filter, the
+     * pool wait and, once captured, their plan.
+     *
+     * @return a Response with the report of {@link QueryTracer}.
+     */
+    @GET
+    @Path("/slow-queries")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSlowQueries() {
+        Response denied = authorize();
+        if (denied != null) {
+            return denied;
+        }
+        return Response.ok(QueryTracer.getInstance().report()).build();
+    }
+
+    private static Response unavailable() {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, 30)
+                .entity("Database unavailable").build();
+    }
+
+    /**
+     * Checks that the admin endpoints are enabled and that the request carries
+     * the admin token.
+     *
+     * @return null if the request may proceed, otherwise the Response to send.
+     */
+    private Response authorize() {
+        String token = AppConfig.getString("movingalong.admin.token", null);
+        if (!AppConfig.getBoolean("movingalong.admin.enabled", false) || token == null || token.isEmpty()) {
+            return disabled();
+        }
+        if (token.length() < MIN_TOKEN_LENGTH) {
+            logger.log(Level.SEVERE, "movingalong.admin.token must be at least " + MIN_TOKEN_LENGTH
+                    + " characters, admin endpoints stay disabled");
+            return disabled();
+        }
+        String authorization = headers == null ? null : headers.getHeaderString(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER)
+                || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                        authorization.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8))) {
+            return Response.status(Response.Status.UNAUTHORIZED).header(HttpHeaders.WWW_AUTHENTICATE, "Bearer")
+                    .entity("Admin token required").build();
+        }
+        return null;
+    }
+
+    private static Response disabled() {
+        return Response.status(Response.Status.NOT_FOUND).entity("Admin endpoints are disabled").build();
+    }
+}
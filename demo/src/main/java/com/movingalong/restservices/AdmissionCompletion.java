@@ -0,0 +1,33 @@
+package com.movingalong.restservices;
+
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Returns the concurrency slot taken by {@link AdmissionFilter} when Jersey
+ * has finished processing a request. Unlike response filters, which Jersey
+ * skips when a resource throws an unmapped exception or its CompletionStage
+ * completes exceptionally, the FINISHED event is raised for every request.
+ */
+@Provider
+public class AdmissionCompletion implements ApplicationEventListener {
+    private static final RequestEventListener RELEASE = event -> {
+        if (event.getType() == RequestEvent.Type.FINISHED) {
+            AdmissionFilter.release(event.getContainerRequest());
+        }
+    };
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+        // Only the request events matter
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return RELEASE;
+    }
+}
@@ -0,0 +1,252 @@
+package com.movingalong.restservices;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.movingalong.helpers.AdaptiveLimit;
+import com.movingalong.helpers.TokenBucket;
+import com.movingalong.utils.AppConfig;
+
+import jakarta.annotation.Priority;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.PreMatching;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Rate limiting and admission control for the REST endpoints.
+ * Each client gets a token bucket per endpoint class: reads, writes, and the
+ * BCrypt endpoints (signup and login), whose budget is much smaller since
+ * every call costs tens of milliseconds of CPU. A client over budget gets 429
+ * with Retry-After. Clients are identified by their IP address, or by the
+ * value of the header named by movingalong.ratelimit.clientHeader when set,
+ * e.g. an API token or X-Forwarded-For behind a trusted proxy. For a list
+ * header like X-Forwarded-For, the entry movingalong.ratelimit.trustedHops
+ * from the right is used: the entries to its left are sent by the client and
+ * cannot be trusted. As new clients arrive, the least recently seen buckets
+ * that have refilled are dropped, since a full bucket decides like a new one;
+ * beyond movingalong.ratelimit.maxClients per endpoint class the least
+ * recently seen are dropped whatever their state.
+ * Admitted requests also share a global concurrency limit that adapts to the
+ * latency of the database-bound requests, so that when MongoDB slows down the
+ * excess is turned away with 503 instead of queueing. The admin endpoints are
+ * exempt from both. The slot taken by a request is returned by
+ * {@link AdmissionCompletion} once Jersey has finished with it, whether it
+ * succeeded or failed.
+ */
+@Provider
+@PreMatching
+@Priority(Priorities.AUTHENTICATION)
+public class AdmissionFilter implements ContainerRequestFilter {
+    private static final String PERMIT_PROPERTY = "movingalong.admission.permit";
+
+    /**
+     * The endpoint classes with separate budgets.
+     */
+    enum EndpointClass {
+        READ(50, 100),
+        WRITE(5, 20),
+        BCRYPT(0.2, 5);
+
+        private final double perSecond;
+        private final int burst;
+        private final Map<String, TokenBucket> buckets = Collections.synchronizedMap(
+                new LinkedHashMap<String, TokenBucket>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+                        return size() > MAX_CLIENTS;
+                    }
+                });
+        private final LongAdder allowed = new LongAdder();
+        private final LongAdder limited = new LongAdder();
+
+        EndpointClass(double defaultPerSecond, int defaultBurst) {
+            String prefix = "movingalong.ratelimit." + name().toLowerCase(Locale.ROOT);
+            this.perSecond = AppConfig.getDouble(prefix + ".perSecond", defaultPerSecond);
+            this.burst = AppConfig.getInt(prefix + ".burst", defaultBurst);
+        }
+    }
+
+    private static final boolean RATE_LIMIT_ENABLED = AppConfig.getBoolean("movingalong.ratelimit.enabled", true);
+    private static final int MAX_CLIENTS = AppConfig.getInt("movingalong.ratelimit.maxClients", 100_000);
+    private static final String CLIENT_HEADER = AppConfig.getString("movingalong.ratelimit.clientHeader", null);
+    private static final int TRUSTED_HOPS = Math.max(1, AppConfig.getInt("movingalong.ratelimit.trustedHops", 1));
+    private static final boolean ADMISSION_ENABLED = AppConfig.getBoolean("movingalong.admission.enabled", true);
+    private static final AdaptiveLimit concurrency = new AdaptiveLimit(
+            AppConfig.getInt("movingalong.admission.initialLimit", 100),
+            AppConfig.getInt("movingalong.admission.minLimit", 10),
+            AppConfig.getInt("movingalong.admission.maxLimit", 1000),
+            AppConfig.getLong("movingalong.admission.targetLatencyMillis", 200));
+    private static final LongAdder shed = new LongAdder();
+
+    /**
+     * The maximum number of idle buckets dropped per new client, which keeps
+     * the work done under the map's lock bounded.
+     */
+    private static final int PRUNE_BATCH = 16;
+
+    @Context
+    private HttpServletRequest servletRequest;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        String path = requestContext.getUriInfo().getPath();
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        if (path.startsWith("admin/")) {
+            return;
+        }
+        EndpointClass endpointClass = classify(requestContext.getMethod(), path);
+
+        if (RATE_LIMIT_ENABLED) {
+            long waitNanos = bucketOf(endpointClass, clientOf(requestContext)).tryAcquire();
+            if (waitNanos > 0) {
+                endpointClass.limited.increment();
+                requestContext.abortWith(Response.status(Response.Status.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000))
+                        .entity("Too many requests")
+                        .build());
+                return;
+            }
+        }
+        if (ADMISSION_ENABLED) {
+            if (!concurrency.tryAcquire()) {
+                shed.increment();
+                requestContext.abortWith(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, 1)
+                        .entity("Server busy, please retry")
+                        .build());
+                return;
+            }
+            // BCrypt latency reflects CPU cost, not database health
+            requestContext.setProperty(PERMIT_PROPERTY, new Permit(endpointClass != EndpointClass.BCRYPT));
+        }
+        endpointClass.allowed.increment();
+    }
+
+    /**
+     * Returns the concurrency slot taken by a request, if it took one. Safe to
+     * call more than once.
+     *
+     * @param requestContext The request.
+     */
+    static void release(ContainerRequestContext requestContext) {
+        Object property = requestContext.getProperty(PERMIT_PROPERTY);
+        if (property instanceof Permit) {
+            ((Permit) property).release();
+        }
+    }
+
+    /**
+     * Returns the counters of the filter.
+     */
+    public static Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("concurrencyLimit", concurrency.getLimit());
+        metrics.put("inFlight", concurrency.getInFlight());
+        metrics.put("shed", shed.sum());
+        Map<String, Map<String, Long>> classes = new LinkedHashMap<>();
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            Map<String, Long> counters = new LinkedHashMap<>();
+            counters.put("allowed", endpointClass.allowed.sum());
+            counters.put("rateLimited", endpointClass.limited.sum());
+            counters.put("trackedClients", (long) endpointClass.buckets.size());
+            classes.put(endpointClass.name().toLowerCase(Locale.ROOT), counters);
+        }
+        metrics.put("endpoints", classes);
+        return metrics;
+    }
+
+    static EndpointClass classify(String method, String path) {
+        if (HttpMethod.POST.equals(method) && ("user/add".equals(path) || "user/login".equals(path))) {
+            return EndpointClass.BCRYPT;
+        }
+        if (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method)) {
+            return EndpointClass.READ;
+        }
+        return EndpointClass.WRITE;
+    }
+
+    private String clientOf(ContainerRequestContext requestContext) {
+        if (CLIENT_HEADER != null) {
+            String value = requestContext.getHeaderString(CLIENT_HEADER);
+            if (value != null && !value.isEmpty()) {
+                return trustedEntry(value);
+            }
+        }
+        try {
+            return servletRequest == null ? "unknown" : servletRequest.getRemoteAddr();
+        } catch (RuntimeException e) {
+            // Not running in a servlet container
+            return "unknown";
+        }
+    }
+
+    /**
+     * Returns the entry of a comma-separated header added by the outermost
+     * trusted proxy, i.e. the TRUSTED_HOPS-th from the right, or the left-most
+     * one if the list is shorter.
+     */
+    static String trustedEntry(String value) {
+        String[] entries = value.split(",");
+        return entries[Math.max(0, entries.length - TRUSTED_HOPS)].trim();
+    }
+
+    private static TokenBucket bucketOf(EndpointClass endpointClass, String client) {
+        Map<String, TokenBucket> buckets = endpointClass.buckets;
+        synchronized (buckets) {
+            TokenBucket bucket = buckets.get(client);
+            if (bucket == null) {
+                pruneIdle(buckets);
+                bucket = new TokenBucket(endpointClass.perSecond, endpointClass.burst);
+                buckets.put(client, bucket);
+            }
+            return bucket;
+        }
+    }
+
+    /**
+     * Drops up to PRUNE_BATCH of the least recently seen buckets, stopping at
+     * the first one that is not full. Called with the map locked.
+     */
+    static void pruneIdle(Map<String, TokenBucket> buckets) {
+        Iterator<TokenBucket> iterator = buckets.values().iterator();
+        for (int i = 0; i < PRUNE_BATCH && iterator.hasNext(); i++) {
+            if (!iterator.next().isFull()) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * A concurrency slot held by a request.
+     */
+    private static final class Permit {
+        private final long start = System.nanoTime();
+        private final boolean sample;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(boolean sample) {
+            this.sample = sample;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                concurrency.release(System.nanoTime() - start, sample);
+            }
+        }
+    }
+}
@@ -3,27 +3,47 @@ package com.movingalong.restservices;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.bson.types.ObjectId;
 
 import jakarta.ws.rs.BeanParam;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.FormParam;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 import lombok.Data;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.movingalong.catalog.ContentEvents;
+import com.movingalong.catalog.FuzzyMatch;
+import com.movingalong.catalog.FuzzyResult;
+import com.movingalong.catalog.FuzzyTitles;
+import com.movingalong.catalog.Leaderboards;
+import com.movingalong.catalog.PopularityTracker;
+import com.movingalong.catalog.SimilarContent;
+import com.movingalong.catalog.SimilarTitles;
 import com.movingalong.dao.ContentDAO;
+import com.movingalong.dao.ReactiveContentDAO;
 
 import com.movingalong.entities.Content;
 import com.movingalong.helpers.DateParser;
+import com.movingalong.utils.AppConfig;
 
 /**
  * RESTful service for managing Content entities.
@@ -33,18 +53,32 @@ public class ContentService {
 
     private static final Logger logger = Logger.getLogger(ContentService.class.getName());
     private ContentDAO contentDao = new ContentDAO();
+    private ReactiveContentDAO reactiveContentDao = AppConfig.isReactiveReads() ? new ReactiveContentDAO() : null;
 
     /**
      * Adds a new Content item to the database.
+     * A retry sent with the same Idempotency-Key gets the original response
+     * back without the item being added again.
      *
-     * @param contentBean The ContentBean object containing data for the new
-     *                    content.
+     * @param contentBean    The ContentBean object containing data for the new
+     *                       content.
+     * @param idempotencyKey The Idempotency-Key header, if any.
      * @return a Response indicating the result of the operation.
      */
     @POST
     @Path("/add")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
-    public Response addContent(@BeanParam ContentBean contentBean) {
+    public Response addContent(@BeanParam ContentBean contentBean,
+            @HeaderParam(IdempotencyStore.HEADER) String idempotencyKey) {
+        return IdempotencyStore.getInstance().execute("content/add", idempotencyKey,
+                IdempotencyStore.fingerprint(contentBean.getTitle(), contentBean.getGenre(),
+                        contentBean.getDescription(), contentBean.getStatus(), contentBean.getReleaseDate(),
+                        contentBean.getPhotoURL(), contentBean.getAgeRating(), contentBean.getScoreRating(),
+                        contentBean.getType()),
+                () -> createContent(contentBean));
+    }
+
+    private Response createContent(ContentBean contentBean) {
         try {
             LocalDate date = DateParser.parseDateString(contentBean.getReleaseDate());
 
@@ -114,26 +148,26 @@ public class ContentService {
      * Retrieves Content items by their title.
      *
      * @param title The title of the Content items to retrieve.
-     * @return a Response containing the list of Content items or an error message.
+     * @return a CompletionStage of a Response containing the list of Content
+     *         items or an error message.
      */
     @GET
     @Path("/getByTitle/{title}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getByTitle(@PathParam("title") String title) {
+    public CompletionStage<Response> getByTitle(@PathParam("title") String title) {
         logger.log(Level.SEVERE, title);
         try {
             if (title == null || title.trim().isEmpty()) {
-                return Response.status(Response.Status.BAD_REQUEST).entity("Title is required").build();
+                return CompletableFuture.completedFuture(
+                        Response.status(Response.Status.BAD_REQUEST).entity("Title is required").build());
             }
-            Optional<List<Content>> contentOptional = contentDao.getContentByTitle(title);
-
-            if (contentOptional.isPresent()) {
-                return Response.ok(contentOptional.get()).build();
-            } else {
-                return Response.status(Response.Status.NOT_FOUND).entity("Content not found").build();
+            if (reactiveContentDao != null) {
+                return reactiveContentDao.getContentByTitle(title).thenApply(this::toResponse);
             }
+            return CompletableFuture.completedFuture(toResponse(contentDao.getContentByTitle(title)));
         } catch (Exception e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error retrieving content").build();
+            return CompletableFuture.completedFuture(
+                    Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error retrieving content").build());
         }
     }
 
@@ -141,29 +175,173 @@ public class ContentService {
      * Retrieves a specific Content item by its ID.
      *
      * @param id The ID of the Content item to retrieve.
-     * @return a Response containing the Content item or an error message.
+     * @return a CompletionStage of a Response containing the Content item or an
+     *         error message.
      */
     @GET
     @Path("/get/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getContent(@PathParam("id") String id) {
+    public CompletionStage<Response> getContent(@PathParam("id") String id) {
 
         try {
             // Validate and convert the ID
             if (!ObjectId.isValid(id)) {
-                return Response.status(Response.Status.BAD_REQUEST).entity("Invalid ID format").build();
+                return CompletableFuture.completedFuture(
+                        Response.status(Response.Status.BAD_REQUEST).entity("Invalid ID format").build());
             }
             ObjectId objectId = new ObjectId(id);
-            Optional<Content> contentOptional = contentDao.getContent(objectId);
-
-            if (contentOptional.isPresent()) {
-                return Response.ok(contentOptional.get()).build();
-            } else {
-                return Response.status(Response.Status.NOT_FOUND).entity("Content not found").build();
+            if (reactiveContentDao != null) {
+                return reactiveContentDao.getContent(objectId).thenApply(this::toViewedResponse);
             }
+            return CompletableFuture.completedFuture(toViewedResponse(contentDao.getContent(objectId)));
         } catch (Exception e) {
             // Log the exception
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error retrieving content").build();
+            return CompletableFuture.completedFuture(
+                    Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error retrieving content").build());
+        }
+    }
+
+    /**
+     * Retrieves the most viewed Content items, ranked by a time-decayed score.
+     *
+     * @param n The maximum number of entries to return.
+     * @return a Response containing the trending entries, hottest first.
+     */
+    @GET
+    @Path("/trending")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getTrending(@QueryParam("n") @DefaultValue("10") int n) {
+        return Response.ok(PopularityTracker.getInstance().getTrending(n)).build();
+    }
+
+    /**
+     * Retrieves the best ranked Content items, served from the in-memory
+     * leaderboards.
+     *
+     * @param genre The genre to restrict to, if any.
+     * @param type  The type to restrict to, if any.
+     * @param n     The maximum number of items to return.
+     * @param by    "rating" for top rated items, "release" for new releases.
+     * @return a Response containing the ranked Content items.
+     */
+    @GET
+    @Path("/top")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getTop(@QueryParam("genre") String genre, @QueryParam("type") String type,
+            @QueryParam("n") @DefaultValue("10") int n, @QueryParam("by") @DefaultValue("rating") String by) {
+        Leaderboards.Ranking ranking;
+        try {
+            ranking = Leaderboards.Ranking.valueOf(by.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid ranking").build();
+        }
+        if (n < 1 || n > 100) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("n must be between 1 and 100").build();
+        }
+        return Response.ok(Leaderboards.getInstance().getTop(ranking, emptyToNull(genre), emptyToNull(type), n))
+                .build();
+    }
+
+    /**
+     * Resolves a title typed with mistakes, such as "Oblivon", to the Content
+     * items whose normalized title is within edit distance 2 of it, closest
+     * first. When none matches exactly, the closest title is returned as a
+     * "did you mean" suggestion.
+     *
+     * @param q The title as typed.
+     * @param n The maximum number of items to return.
+     * @return a Response containing the suggestion and the matches.
+     */
+    @GET
+    @Path("/fuzzy")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getFuzzy(@QueryParam("q") String q, @QueryParam("n") @DefaultValue("10") int n) {
+        if (q == null || q.trim().isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Missing query").build();
+        }
+        if (n < 1 || n > 50) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("n must be between 1 and 50").build();
+        }
+        List<FuzzyMatch> matches = FuzzyTitles.getInstance().search(q, n);
+        String didYouMean = matches.isEmpty() || matches.get(0).getDistance() == 0 ? null : matches.get(0).getTitle();
+        return Response.ok(new FuzzyResult(q, didYouMean, matches)).build();
+    }
+
+    /**
+     * Retrieves the Content items most similar to a given one by genre, type,
+     * age rating and celebrities, served from precomputed lists.
+     *
+     * @param id The ID of the Content item.
+     * @param n  The maximum number of items to return.
+     * @return a Response containing the similar items, most similar first.
+     */
+    @GET
+    @Path("/{id}/similar")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSimilar(@PathParam("id") String id, @QueryParam("n") @DefaultValue("10") int n) {
+        if (!ObjectId.isValid(id)) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid ID format").build();
+        }
+        SimilarTitles similarTitles = SimilarTitles.getInstance();
+        if (n < 1 || n > similarTitles.getK()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("n must be between 1 and " + similarTitles.getK()).build();
+        }
+        List<SimilarContent> similar = similarTitles.getSimilar(new ObjectId(id), n);
+        if (similar == null) {
+            return Response.status(Response.Status.NOT_FOUND).entity("Content not found with provided ID").build();
+        }
+        return Response.ok(similar).build();
+    }
+
+    /**
+     * Streams catalog changes as Server-Sent Events: "contentAdded",
+     * "contentUpdated" and "contentDeleted", each with the ID and the ranked
+     * fields of the item. A client reconnecting with Last-Event-ID receives the
+     * events it missed, or a "reset" event if they are no longer available.
+     *
+     * @param sink        The sink of the event stream.
+     * @param sse         The factory of outbound events.
+     * @param lastEventId The ID of the last event received, if reconnecting.
+     */
+    @GET
+    @Path("/events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void getEvents(@Context SseEventSink sink, @Context Sse sse,
+            @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId) {
+        if (!ContentEvents.getInstance().subscribe(sink, sse, lastEventId)) {
+            throw new WebApplicationException(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, 30).entity("Too many event subscribers").build());
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
+
+    /**
+     * Maps the result of a lookup by ID to a Response, counting a view of the
+     * Content item when it was found.
+     *
+     * @param result The optional Content returned by the lookup.
+     * @return a 200 Response with the Content, or a 404 Response if it is empty.
+     */
+    private Response toViewedResponse(Optional<Content> result) {
+        result.ifPresent(content -> PopularityTracker.getInstance().recordView(content.getId()));
+        return toResponse(result);
+    }
+
+    /**
+     * Maps the result of a DAO lookup to a Response.
+     *
+     * @param result The optional result of the lookup.
+     * @return a 200 Response with the result, or a 404 Response if it is empty.
+     */
+    private Response toResponse(Optional<?> result) {
+        if (result.isPresent()) {
+            return Response.ok(result.get()).build();
+        } else {
+            return Response.status(Response.Status.NOT_FOUND).entity("Content not found").build();
         }
     }
 
@@ -0,0 +1,311 @@
+package com.movingalong.restservices;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.bson.Document;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Updates;
+import com.movingalong.utils.AppConfig;
+
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Remembers the responses of requests sent with an Idempotency-Key header, so
+ * that a client retrying a create after a timeout gets the original response
+ * back instead of running the work, BCrypt included, a second time.
+ * Keys are scoped by endpoint and bound to a fingerprint of the request: a
+ * key reused with a different request is rejected with 422, and a retry
+ * arriving while the original is still running gets 409. Responses with a
+ * 5xx status are not remembered, so those requests can be retried.
+ * Entries live in a bounded, expiring map. When movingalong.idempotency.mongo
+ * is true, keys are also reserved in the "idempotency_keys" collection, which
+ * has a TTL index, so that a retry landing on another node is recognized too.
+ * A reservation whose request has not completed is only a lease of
+ * movingalong.idempotency.leaseSeconds: past it, the node is presumed to have
+ * crashed and a retry may take the key over.
+ */
+public final class IdempotencyStore {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final Logger logger = Logger.getLogger(IdempotencyStore.class.getName());
+    private static final IdempotencyStore INSTANCE = new IdempotencyStore();
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlSeconds;
+    private final long leaseMillis;
+    private volatile MongoCollection<Document> keys;
+
+    private IdempotencyStore() {
+        this.enabled = AppConfig.getBoolean("movingalong.idempotency.enabled", true);
+        this.maxEntries = AppConfig.getInt("movingalong.idempotency.maxEntries", 100_000);
+        this.ttlSeconds = AppConfig.getLong("movingalong.idempotency.ttlSeconds", 24 * 60 * 60);
+        this.leaseMillis = AppConfig.getLong("movingalong.idempotency.leaseSeconds", 60) * 1000;
+    }
+
+    public static IdempotencyStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts sharing keys through MongoDB, if movingalong.idempotency.mongo is
+     * true.
+     *
+     * @param database The database holding the "idempotency_keys" collection.
+     */
+    public synchronized void start(MongoDatabase database) {
+        if (!enabled || !AppConfig.getBoolean("movingalong.idempotency.mongo", false)) {
+            return;
+        }
+        try {
+            MongoCollection<Document> collection = database.getCollection("idempotency_keys");
+            collection.createIndex(Indexes.ascending("createdAt"),
+                    new IndexOptions().expireAfter(ttlSeconds, TimeUnit.SECONDS));
+            keys = collection;
+        } catch (MongoException e) {
+            logger.log(Level.SEVERE, "Error in start", e);
+        }
+    }
+
+    /**
+     * Stops sharing keys through MongoDB and forgets the local ones.
+     */
+    public synchronized void stop() {
+        keys = null;
+        entries.clear();
+    }
+
+    /**
+     * Returns a fingerprint of a request, to detect a key reused for another
+     * request. The fingerprint is stored, so secrets such as passwords must
+     * not be among the fields.
+     *
+     * @param fields The fields identifying the request.
+     */
+    public static String fingerprint(String... fields) {
+        StringBuilder builder = new StringBuilder();
+        for (String field : fields) {
+            // Length-prefixed so that no two field lists give the same string
+            builder.append(field == null ? -1 : field.length()).append(':').append(field == null ? "" : field);
+        }
+        return DigestUtils.sha256Hex(builder.toString());
+    }
+
+    /**
+     * Runs a request at most once per idempotency key.
+     *
+     * @param scope       The endpoint the key belongs to.
+     * @param key         The Idempotency-Key header, or null if absent.
+     * @param fingerprint The fingerprint of the request.
+     * @param action      The work of the request, returning a Response with a
+     *                    String entity or none.
+     * @return the Response of the action, or the stored one for a replay.
+     */
+    public Response execute(String scope, String key, String fingerprint, Supplier<Response> action) {
+        if (key == null || !enabled) {
+            return action.get();
+        }
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Invalid " + HEADER).build();
+        }
+        String id = scope + ":" + key;
+        long now = System.currentTimeMillis();
+        Entry reserved = new Entry(fingerprint, now, now + leaseMillis);
+        Entry existing = reserveLocal(id, reserved);
+        if (existing != null) {
+            return replay(existing, fingerprint);
+        }
+        MongoCollection<Document> shared = keys;
+        if (shared != null) {
+            Entry other = reserveShared(shared, id, reserved);
+            if (other != null) {
+                entries.remove(id, reserved);
+                return replay(other, fingerprint);
+            }
+        }
+
+        Response response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(shared, id, reserved);
+            throw e;
+        }
+        if (response.getStatus() >= 500) {
+            release(shared, id, reserved);
+            return response;
+        }
+        String body = response.getEntity() == null ? null : response.getEntity().toString();
+        reserved.complete(response.getStatus(), body);
+        if (shared != null) {
+            try {
+                // Only while this node still holds the lease
+                shared.updateOne(Filters.and(Filters.eq("_id", id),
+                        Filters.eq("leaseUntil", new Date(reserved.leaseUntil))),
+                        Updates.combine(Updates.set("status", response.getStatus()), Updates.set("body", body)));
+            } catch (MongoException e) {
+                logger.log(Level.SEVERE, "Error in execute", e);
+            }
+        }
+        return response;
+    }
+
+    private Entry reserveLocal(String id, Entry reserved) {
+        while (true) {
+            Entry existing = entries.putIfAbsent(id, reserved);
+            if (existing == null) {
+                evictIfFull();
+                return null;
+            }
+            if (!isExpired(existing)) {
+                return existing;
+            }
+            entries.remove(id, existing);
+        }
+    }
+
+    /**
+     * Reserves a key in MongoDB.
+     *
+     * @return the entry of the node that reserved the key first, or null if
+     *         this node did, took over an expired lease, or MongoDB is
+     *         unavailable.
+     */
+    private Entry reserveShared(MongoCollection<Document> shared, String id, Entry reserved) {
+        try {
+            shared.insertOne(new Document("_id", id)
+                    .append("fingerprint", reserved.fingerprint)
+                    .append("createdAt", new Date(reserved.createdAt))
+                    .append("leaseUntil", new Date(reserved.leaseUntil)));
+            return null;
+        } catch (MongoWriteException e) {
+            if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                logger.log(Level.SEVERE, "Error in reserveShared", e);
+                return null;
+            }
+        } catch (MongoException e) {
+            logger.log(Level.SEVERE, "Error in reserveShared", e);
+            return null;
+        }
+        try {
+            Document document = shared.find(Filters.eq("_id", id)).first();
+            if (document == null) {
+                return null;
+            }
+            long createdAt = document.getDate("createdAt").getTime();
+            Date leaseUntil = document.getDate("leaseUntil");
+            Entry entry = new Entry(document.getString("fingerprint"), createdAt,
+                    leaseUntil == null ? createdAt + leaseMillis : leaseUntil.getTime());
+            Integer status = document.getInteger("status");
+            if (status != null) {
+                entry.complete(status, document.getString("body"));
+                return entry;
+            }
+            if (entry.leaseUntil >= System.currentTimeMillis() || !entry.fingerprint.equals(reserved.fingerprint)) {
+                return entry;
+            }
+            // The node holding the lease did not complete the request in time
+            long taken = shared.updateOne(Filters.and(Filters.eq("_id", id), Filters.exists("status", false),
+                    Filters.eq("leaseUntil", leaseUntil)),
+                    Updates.combine(Updates.set("createdAt", new Date(reserved.createdAt)),
+                            Updates.set("leaseUntil", new Date(reserved.leaseUntil))))
+                    .getModifiedCount();
+            return taken == 1 ? null : entry;
+        } catch (MongoException e) {
+            logger.log(Level.SEVERE, "Error in reserveShared", e);
+            return null;
+        }
+    }
+
+    private void release(MongoCollection<Document> shared, String id, Entry reserved) {
+        entries.remove(id, reserved);
+        if (shared != null) {
+            try {
+                // Only while this node still holds the lease, which another node may have taken over
+                shared.deleteOne(Filters.and(Filters.eq("_id", id), Filters.exists("status", false),
+                        Filters.eq("leaseUntil", new Date(reserved.leaseUntil))));
+            } catch (MongoException e) {
+                logger.log(Level.SEVERE, "Error in release", e);
+            }
+        }
+    }
+
+    private Response replay(Entry entry, String fingerprint) {
+        if (!entry.fingerprint.equals(fingerprint)) {
+            return Response.status(422).entity(HEADER + " was already used for a different request").build();
+        }
+        if (entry.status == 0) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity("A request with this " + HEADER + " is still in progress").build();
+        }
+        return Response.status(entry.status).entity(entry.body).header(REPLAYED_HEADER, "true").build();
+    }
+
+    /**
+     * Once the map is full, drops expired entries and, if that is not enough,
+     * arbitrary completed ones, as ContentCache does, down to 90% of the
+     * bound. Each sweep then pays for the next tenth of the inserts, and only
+     * one thread sweeps at a time.
+     */
+    private void evictIfFull() {
+        if (entries.size() <= maxEntries || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int target = maxEntries - maxEntries / 10;
+            entries.values().removeIf(this::isExpired);
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (entries.size() > target && it.hasNext()) {
+                if (it.next().getValue().status != 0) {
+                    it.remove();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        long now = System.currentTimeMillis();
+        return now - entry.createdAt > ttlSeconds * 1000 || (entry.status == 0 && now > entry.leaseUntil);
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final long createdAt;
+        private final long leaseUntil;
+        private volatile String body;
+        private volatile int status;
+
+        Entry(String fingerprint, long createdAt, long leaseUntil) {
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+            this.leaseUntil = leaseUntil;
+        }
+
+        void complete(int status, String body) {
+            this.body = body;
+            this.status = status;
+        }
+    }
+}
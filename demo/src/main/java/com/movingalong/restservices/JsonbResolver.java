@@ -0,0 +1,26 @@
+package com.movingalong.restservices;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.ext.ContextResolver;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Provides the single Jsonb instance used to write every JSON response.
+ * JSON-B builds and caches a model of each class on first use, so sharing one
+ * instance lets {@link com.movingalong.utils.AppContextListener} build these
+ * models at startup instead of during the first requests.
+ */
+@Provider
+public class JsonbResolver implements ContextResolver<Jsonb> {
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
+    public static Jsonb getJsonb() {
+        return JSONB;
+    }
+
+    @Override
+    public Jsonb getContext(Class<?> type) {
+        return JSONB;
+    }
+}
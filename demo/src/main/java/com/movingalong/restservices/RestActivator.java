@@ -3,7 +3,9 @@ package com.movingalong.restservices;
 import jakarta.ws.rs.ApplicationPath;
 import jakarta.ws.rs.core.Application;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -25,6 +27,24 @@ public class RestActivator extends Application {
         Set<Class<?>> resources = new HashSet<>();
         resources.add(ContentService.class);
         resources.add(UserService.class);
+        resources.add(AdminService.class);
+        resources.add(JsonbResolver.class);
+        resources.add(StartupTimer.class);
+        resources.add(AdmissionFilter.class);
+        resources.add(AdmissionCompletion.class);
         return resources;
     }
+
+    /**
+     * Disables the WADL document, which nothing uses and which would otherwise
+     * initialize JAXB when the application is deployed.
+     *
+     * @return a Map of the Jersey properties of the application.
+     */
+    @Override
+    public Map<String, Object> getProperties() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("jersey.config.server.wadl.disableWadl", true);
+        return properties;
+    }
 }
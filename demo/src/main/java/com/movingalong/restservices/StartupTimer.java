@@ -0,0 +1,28 @@
+package com.movingalong.restservices;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Logs the time from JVM start to the first REST request, the figure startup
+ * optimizations are measured against.
+ */
+@Provider
+public class StartupTimer implements ContainerRequestFilter {
+    private static final Logger logger = Logger.getLogger(StartupTimer.class.getName());
+    private static final AtomicBoolean firstRequestSeen = new AtomicBoolean();
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (!firstRequestSeen.get() && firstRequestSeen.compareAndSet(false, true)) {
+            long sinceJvmStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            logger.log(Level.INFO, "First request received " + sinceJvmStart + " ms after JVM start");
+        }
+    }
+}
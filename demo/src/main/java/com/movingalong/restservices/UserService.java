@@ -1,26 +1,36 @@
 package com.movingalong.restservices;
 
 import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import jakarta.ws.rs.BeanParam;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.FormParam;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import lombok.Data;
+import lombok.ToString;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.bson.types.ObjectId;
 import org.mindrot.jbcrypt.BCrypt;
 
+import com.movingalong.accounts.UserAvailability;
+import com.movingalong.dao.ReactiveUserDAO;
 import com.movingalong.dao.UserDAO;
 import com.movingalong.entities.User;
+import com.movingalong.utils.AppConfig;
 
 /**
  * RESTful service for managing User entities.
@@ -30,17 +40,30 @@ public class UserService {
 
     private static final Logger logger = Logger.getLogger(UserService.class.getName());
     private UserDAO userDao = new UserDAO();
+    private ReactiveUserDAO reactiveUserDao = AppConfig.isReactiveReads() ? new ReactiveUserDAO() : null;
 
     /**
      * Adds a new User to the database.
+     * A retry sent with the same Idempotency-Key gets the original response
+     * back without the password being hashed and the User added again.
      *
-     * @param userBean The UserBean object containing data for the new User.
+     * @param userBean       The UserBean object containing data for the new
+     *                       User.
+     * @param idempotencyKey The Idempotency-Key header, if any.
      * @return a Response indicating the result of the operation.
      */
     @POST
     @Path("/add")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
-    public Response addUser(@BeanParam UserBean userBean) {
+    public Response addUser(@BeanParam UserBean userBean,
+            @HeaderParam(IdempotencyStore.HEADER) String idempotencyKey) {
+        return IdempotencyStore.getInstance().execute("user/add", idempotencyKey,
+                IdempotencyStore.fingerprint(userBean.getUsername(), userBean.getDateBirth(), userBean.getEmail(),
+                        userBean.getPhotoURL()),
+                () -> createUser(userBean));
+    }
+
+    private Response createUser(UserBean userBean) {
         try {
             User user = new User(
                     userBean.getUsername(),
@@ -100,21 +123,20 @@ public class UserService {
     @GET
     @Path("/get/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getUser(@PathParam("id") String id) {
+    public CompletionStage<Response> getUser(@PathParam("id") String id) {
         try {
             if (id == null || id.trim().isEmpty()) {
-                return Response.status(Response.Status.BAD_REQUEST).entity("User ID is required").build();
+                return CompletableFuture.completedFuture(
+                        Response.status(Response.Status.BAD_REQUEST).entity("User ID is required").build());
             }
-            Optional<User> userOptional = userDao.getUser(new ObjectId(id));
-
-            if (userOptional.isPresent()) {
-                return Response.ok(userOptional.get()).build();
-            } else {
-                return Response.status(Response.Status.NOT_FOUND).entity("User not found").build();
+            if (reactiveUserDao != null) {
+                return reactiveUserDao.getUser(new ObjectId(id)).thenApply(this::toResponse);
             }
+            return CompletableFuture.completedFuture(toResponse(userDao.getUser(new ObjectId(id))));
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error retrieving user", e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error retrieving user").build();
+            return CompletableFuture.completedFuture(
+                    Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error retrieving user").build());
         }
 
     }
@@ -148,29 +170,109 @@ public class UserService {
      * Retrieves a specific User from the database based on their username.
      *
      * @param username The username of the User to retrieve.
-     * @return a Response containing the User data if found, or an appropriate error
-     *         response
+     * @return a CompletionStage of a Response containing the User data if found,
+     *         or an appropriate error response
      *         if the username is invalid, or the User is not found.
      */
     @GET
     @Path("/getByUsername/{username}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getUserByUsername(@PathParam("username") String username) {
+    public CompletionStage<Response> getUserByUsername(@PathParam("username") String username) {
         try {
             if (username == null || username.trim().isEmpty()) {
-                return Response.status(Response.Status.BAD_REQUEST).entity("Username is required").build();
+                return CompletableFuture.completedFuture(
+                        Response.status(Response.Status.BAD_REQUEST).entity("Username is required").build());
+            }
+            if (reactiveUserDao != null) {
+                return reactiveUserDao.getUserByUsername(username).thenApply(this::toResponse);
             }
+            return CompletableFuture.completedFuture(toResponse(userDao.getUserByUsername(username)));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error retrieving user", e);
+            return CompletableFuture.completedFuture(
+                    Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error retrieving user").build());
+        }
+    }
 
-            Optional<User> userOptional = userDao.getUserByUsername(username);
+    /**
+     * Authenticates a User with the credentials posted by the login form.
+     *
+     * @param credentials The LoginBean holding the username and password.
+     * @return a Response containing the authenticated User, or 401 if the
+     *         credentials are invalid.
+     */
+    @POST
+    @Path("/login")
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response login(@BeanParam LoginBean credentials) {
+        try {
+            if (credentials.getUsername() == null || credentials.getPassword() == null) {
+                return Response.status(Response.Status.BAD_REQUEST).entity("Username and password are required")
+                        .build();
+            }
+            Optional<User> userOptional = userDao.authenticateUser(credentials.getUsername(),
+                    credentials.getPassword());
 
             if (userOptional.isPresent()) {
-                return Response.ok(userOptional.get()).build();
+                User user = userOptional.get();
+                user.setPassword(null);
+                return Response.ok(user).build();
             } else {
-                return Response.status(Response.Status.NOT_FOUND).entity("User not found").build();
+                return Response.status(Response.Status.UNAUTHORIZED).entity("Invalid username or password").build();
             }
         } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error retrieving user", e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error retrieving user").build();
+            logger.log(Level.SEVERE, "Error authenticating user", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error authenticating user")
+                    .build();
+        }
+    }
+
+    /**
+     * Checks whether a username and/or an email are still free, for live
+     * validation of the signup form.
+     *
+     * @param username The username to check, if any.
+     * @param email    The email to check, if any.
+     * @return a Response mapping each checked field to its availability.
+     */
+    @GET
+    @Path("/available")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response isAvailable(@QueryParam("username") String username, @QueryParam("email") String email) {
+        try {
+            boolean hasUsername = username != null && !username.trim().isEmpty();
+            boolean hasEmail = email != null && !email.trim().isEmpty();
+            if (!hasUsername && !hasEmail) {
+                return Response.status(Response.Status.BAD_REQUEST).entity("Username or email is required").build();
+            }
+            UserAvailability availability = UserAvailability.getInstance();
+            Map<String, Boolean> result = new LinkedHashMap<>();
+            if (hasUsername) {
+                result.put("username", availability.isUsernameAvailable(username));
+            }
+            if (hasEmail) {
+                result.put("email", availability.isEmailAvailable(email));
+            }
+            return Response.ok(result).build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error checking availability", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error checking availability")
+                    .build();
+        }
+    }
+
+    /**
+     * Maps the result of a DAO lookup to a Response.
+     *
+     * @param result The optional User returned by the lookup.
+     * @return a 200 Response with the User, or a 404 Response if it is empty.
+     */
+    private Response toResponse(Optional<User> result) {
+        if (result.isPresent()) {
+            return Response.ok(result.get()).build();
+        } else {
+            return Response.status(Response.Status.NOT_FOUND).entity("User not found").build();
         }
     }
 
@@ -189,9 +291,23 @@ public class UserService {
         private String email;
 
         @FormParam("password")
+        @ToString.Exclude
         private String password;
 
         @FormParam("photoURL")
         private String photoURL;
     }
+
+    /**
+     * Inner class representing the credentials posted by the login form.
+     */
+    @Data
+    public static class LoginBean {
+        @FormParam("username")
+        private String username;
+
+        @FormParam("password")
+        @ToString.Exclude
+        private String password;
+    }
 }
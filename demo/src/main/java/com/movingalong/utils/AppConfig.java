@@ -0,0 +1,94 @@
+package com.movingalong.utils;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Central access point for application settings.
+ * A setting is looked up as a JVM system property first (e.g.
+ * -Dmovingalong.dao.mode=reactive) and then as an environment variable
+ * (e.g. MOVINGALONG_DAO_MODE=reactive), falling back to the given default.
+ */
+public final class AppConfig {
+    private static final Logger logger = Logger.getLogger(AppConfig.class.getName());
+
+    public static final String MONGO_URI = "movingalong.mongo.uri";
+    public static final String MONGO_DATABASE = "movingalong.mongo.database";
+    public static final String DAO_MODE = "movingalong.dao.mode";
+
+    private AppConfig() {
+    }
+
+    /**
+     * Returns the connection string of the MongoDB deployment.
+     */
+    public static String getMongoUri() {
+        return getString(MONGO_URI, "mongodb://localhost:27017");
+    }
+
+    /**
+     * Returns the name of the database holding the application collections.
+     */
+    public static String getMongoDatabase() {
+        return getString(MONGO_DATABASE, "moving_along");
+    }
+
+    /**
+     * Returns true if read operations should go through the reactive DAOs.
+     */
+    public static boolean isReactiveReads() {
+        return "reactive".equalsIgnoreCase(getString(DAO_MODE, "sync"));
+    }
+
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            value = System.getenv(key.toUpperCase().replace('.', '_'));
+        }
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.log(Level.WARNING, "Invalid integer for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            logger.log(Level.WARNING, "Invalid long for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            logger.log(Level.WARNING, "Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,169 @@
+package com.movingalong.utils;
+
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.types.ObjectId;
+
+import com.movingalong.accounts.UserAvailability;
+import com.movingalong.catalog.ContentCache;
+import com.movingalong.catalog.ContentEvents;
+import com.movingalong.catalog.ContentSnapshot;
+import com.movingalong.catalog.FuzzyTitles;
+import com.movingalong.catalog.Leaderboards;
+import com.movingalong.catalog.PopularityTracker;
+import com.movingalong.catalog.RankedContent;
+import com.movingalong.catalog.ReleaseScheduler;
+import com.movingalong.catalog.SimilarTitles;
+import com.movingalong.catalog.TrendingEntry;
+import com.movingalong.codecs.EntityCodecs;
+import com.movingalong.dao.ContentDAO;
+import com.movingalong.dao.UserDAO;
+import com.movingalong.entities.Content;
+import com.movingalong.entities.User;
+import com.movingalong.restservices.IdempotencyStore;
+import com.movingalong.restservices.JsonbResolver;
+
+import dev.morphia.Datastore;
+import jakarta.json.bind.Jsonb;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+/**
+ * Starts and stops the application wide background services together with the
+ * web application.
+ * Unless movingalong.startup.warmup is false, the Morphia and JSON-B mappers
+ * are also exercised before the first request arrives. The time spent in each
+ * startup step is logged. If MongoDB is not reachable at startup, the
+ * services are started by a background task as soon as it is.
+ */
+public class AppContextListener implements ServletContextListener {
+    private static final Logger logger = Logger.getLogger(AppContextListener.class.getName());
+    private UtilsDB utils;
+    private ContentSnapshot snapshot;
+    private ScheduledExecutorService retry;
+    private boolean started;
+    private boolean destroyed;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        long start = System.currentTimeMillis();
+        utils = new UtilsDB();
+        Datastore datastore = utils.getDatastore();
+        if (datastore != null) {
+            startServices(datastore, start);
+            return;
+        }
+        long retrySeconds = AppConfig.getLong("movingalong.startup.retrySeconds", 10);
+        logger.log(Level.SEVERE, "No datastore available, background services start once it is, checking every "
+                + retrySeconds + " s");
+        retry = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "background-services-start");
+            thread.setDaemon(true);
+            return thread;
+        });
+        retry.scheduleWithFixedDelay(() -> {
+            long attempt = System.currentTimeMillis();
+            Datastore available = utils.getDatastore();
+            if (available != null) {
+                startServices(available, attempt);
+                retry.shutdown();
+            }
+        }, retrySeconds, retrySeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Warms up and starts the background services, unless the application is
+     * already being stopped.
+     *
+     * @param datastore The shared datastore.
+     * @param start     The time startup began, for the log.
+     */
+    private synchronized void startServices(Datastore datastore, long start) {
+        if (destroyed || started) {
+            return;
+        }
+        started = true;
+        long connected = System.currentTimeMillis();
+        if (AppConfig.getBoolean("movingalong.startup.warmup", true)) {
+            warmUp(datastore);
+        }
+        long warmedUp = System.currentTimeMillis();
+        PopularityTracker.getInstance().start(datastore.getDatabase());
+        ContentDAO contentDao = new ContentDAO();
+        ContentCache.getInstance().start();
+        snapshot = new ContentSnapshot();
+        snapshot.load();
+        Leaderboards.getInstance().start(contentDao);
+        ContentEvents.getInstance().start();
+        SimilarTitles.getInstance().start(contentDao);
+        FuzzyTitles.getInstance().start(contentDao);
+        ReleaseScheduler.getInstance().start(contentDao);
+        UserAvailability.getInstance().start(new UserDAO());
+        IdempotencyStore.getInstance().start(datastore.getDatabase());
+        QueryTracer.getInstance().start();
+        snapshot.start(contentDao);
+        long end = System.currentTimeMillis();
+        logger.log(Level.INFO, "Started in " + (end - start) + " ms: datastore " + (connected - start)
+                + " ms, warm-up " + (warmedUp - connected) + " ms, services " + (end - warmedUp) + " ms");
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        synchronized (this) {
+            destroyed = true;
+        }
+        if (retry != null) {
+            retry.shutdownNow();
+        }
+        PopularityTracker.getInstance().stop();
+        if (snapshot != null) {
+            snapshot.stop();
+        }
+        Leaderboards.getInstance().stop();
+        ContentEvents.getInstance().stop();
+        SimilarTitles.getInstance().stop();
+        FuzzyTitles.getInstance().stop();
+        ReleaseScheduler.getInstance().stop();
+        ContentCache.getInstance().stop();
+        UserAvailability.getInstance().stop();
+        IdempotencyStore.getInstance().stop();
+        QueryTracer.getInstance().stop();
+        ReactiveUtilsDB.closeClient();
+        if (utils != null) {
+            utils.closeClient();
+        }
+    }
+
+    /**
+     * Builds the Morphia, codec and JSON-B models of the entities and opens a
+     * pooled connection, which the first requests would otherwise pay for.
+     *
+     * @param datastore The shared datastore.
+     */
+    private void warmUp(Datastore datastore) {
+        try {
+            datastore.find(Content.class).first();
+            datastore.find(User.class).first();
+            if (EntityCodecs.isEnabled()) {
+                datastore.getDatabase().getCollection("contents", Content.class)
+                        .withCodecRegistry(EntityCodecs.getCodecRegistry()).find().first();
+            }
+
+            Content content = new Content("warm-up", "genre", "description", "Released", LocalDate.now(), "",
+                    "PG", 0, "Movie");
+            content.setId(new ObjectId());
+            Jsonb jsonb = JsonbResolver.getJsonb();
+            jsonb.toJson(content);
+            jsonb.toJson(new User("warm-up", "2000-01-01", "", "", null, ""));
+            jsonb.toJson(new RankedContent(content));
+            jsonb.toJson(new TrendingEntry(content.getId().toHexString(), 0));
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error in warmUp", e);
+        }
+    }
+}
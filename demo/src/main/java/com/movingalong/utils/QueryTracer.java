@@ -0,0 +1,520 @@
+package com.movingalong.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+/**
+ * Traces the commands sent by the synchronous client of {@link UtilsDB}, so
+ * that a slow DAO call can be told apart as a bad plan, a pool wait or the
+ * network. Every command is timed along with the shape of its filter, the
+ * number of documents it returned and the time its thread waited for a pooled
+ * connection. Commands slower than movingalong.slowquery.thresholdMs are
+ * logged and kept if they are among the slowest movingalong.slowquery.size
+ * of the last movingalong.slowquery.windowMinutes; their plan is then captured
+ * by running explain on a background thread, at most once per shape every
+ * movingalong.slowquery.explainIntervalSeconds. Only the fields explain needs
+ * are copied from each command, and update and delete batches of more than
+ * one statement are not explained.
+ */
+public final class QueryTracer implements CommandListener, ConnectionPoolListener {
+    private static final Logger logger = Logger.getLogger(QueryTracer.class.getName());
+    private static final QueryTracer INSTANCE = new QueryTracer();
+
+    /**
+     * Handshake, authentication and session commands, which say nothing about
+     * the queries, and explain itself.
+     */
+    private static final Set<String> IGNORED = Set.of("hello", "ismaster", "isMaster", "ping", "buildinfo",
+            "buildInfo", "saslStart", "saslContinue", "endSessions", "killCursors", "explain");
+    private static final Set<String> EXPLAINABLE = Set.of("find", "aggregate", "count", "distinct",
+            "findAndModify", "update", "delete");
+
+    /**
+     * The fields of each explainable command that explain needs, the command
+     * name first.
+     */
+    private static final Map<String, List<String>> EXPLAIN_FIELDS = Map.of(
+            "find", List.of("find", "filter", "sort", "projection", "hint", "skip", "limit", "collation"),
+            "aggregate", List.of("aggregate", "pipeline", "cursor", "hint", "collation"),
+            "count", List.of("count", "query", "hint", "skip", "limit", "collation"),
+            "distinct", List.of("distinct", "key", "query", "collation"),
+            "findAndModify", List.of("findAndModify", "query", "sort", "update", "remove", "upsert", "new",
+                    "fields", "collation"));
+
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final int size;
+    private final boolean explainEnabled;
+    private final long explainIntervalMillis;
+    private final long windowMillis;
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]> checkout = ThreadLocal.withInitial(() -> new long[2]);
+    private final PriorityQueue<SlowQuery> slowest = new PriorityQueue<>(
+            Comparator.comparingLong(SlowQuery::getDurationMs));
+    private final Map<String, SlowQuery> plans = new LinkedHashMap<String, SlowQuery>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SlowQuery> eldest) {
+            return size() > 256;
+        }
+    };
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+    private volatile MongoClient client;
+    private ThreadPoolExecutor explainer;
+
+    private QueryTracer() {
+        this.enabled = AppConfig.getBoolean("movingalong.slowquery.enabled", true);
+        this.thresholdNanos = TimeUnit.MILLISECONDS
+                .toNanos(AppConfig.getLong("movingalong.slowquery.thresholdMs", 100));
+        this.size = AppConfig.getInt("movingalong.slowquery.size", 50);
+        this.explainEnabled = AppConfig.getBoolean("movingalong.slowquery.explain", true);
+        this.explainIntervalMillis = TimeUnit.SECONDS
+                .toMillis(AppConfig.getLong("movingalong.slowquery.explainIntervalSeconds", 300));
+        this.windowMillis = TimeUnit.MINUTES.toMillis(AppConfig.getLong("movingalong.slowquery.windowMinutes", 60));
+    }
+
+    public static QueryTracer getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the explain thread. Explain requests queue up to a small bound
+     * and are dropped beyond it, so a burst of slow commands cannot pile more
+     * load on the database.
+     */
+    public synchronized void start() {
+        if (explainer != null || !enabled || !explainEnabled) {
+            return;
+        }
+        explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16), runnable -> {
+            Thread thread = new Thread(runnable, "query-tracer-explain");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Stops the explain thread.
+     */
+    public synchronized void stop() {
+        if (explainer != null) {
+            explainer.shutdownNow();
+            explainer = null;
+        }
+    }
+
+    /**
+     * Sets the client used to run explain, or null once it is closed.
+     */
+    void setClient(MongoClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Returns the slow commands recorded in the current window, slowest first,
+     * along with the counters of the tracer.
+     */
+    public Map<String, Object> report() {
+        List<SlowQuery> queries;
+        synchronized (slowest) {
+            expire(System.currentTimeMillis());
+            queries = new ArrayList<>(slowest);
+        }
+        queries.sort(Comparator.comparingLong(SlowQuery::getDurationMs).reversed());
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("thresholdMs", TimeUnit.NANOSECONDS.toMillis(thresholdNanos));
+        report.put("windowMinutes", TimeUnit.MILLISECONDS.toMinutes(windowMillis));
+        report.put("commands", commands.sum());
+        report.put("slowCommands", slow.sum());
+        report.put("queries", queries);
+        return report;
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        long[] times = checkout.get();
+        times[0] = System.nanoTime();
+        times[1] = 0;
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        // The synchronous driver checks out on the thread that then sends the command
+        long[] times = checkout.get();
+        if (times[0] != 0) {
+            times[1] = System.nanoTime() - times[0];
+            times[0] = 0;
+        }
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        long[] times = checkout.get();
+        times[0] = 0;
+        times[1] = 0;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!enabled || IGNORED.contains(event.getCommandName())) {
+            return;
+        }
+        long[] times = checkout.get();
+        long wait = times[1];
+        times[1] = 0;
+        try {
+            // The command document is only valid during the event, so the shape is taken now
+            BsonDocument command = event.getCommand();
+            String name = event.getCommandName();
+            BsonDocument explain = explainEnabled && EXPLAINABLE.contains(name) ? toExplain(name, command) : null;
+            pending.put(event.getRequestId(), new Pending(event.getDatabaseName(), collectionOf(name, command),
+                    shapeOf(name, command), wait, explain));
+        } catch (RuntimeException e) {
+            logger.log(Level.FINE, "Error in commandStarted", e);
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        Pending started = pending.remove(event.getRequestId());
+        if (started != null) {
+            finish(started, event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS),
+                    documentsOf(event.getResponse()), false);
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        Pending started = pending.remove(event.getRequestId());
+        if (started != null) {
+            finish(started, event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), 0, true);
+        }
+    }
+
+    private void finish(Pending started, String name, long elapsedNanos, long documents, boolean failed) {
+        commands.increment();
+        if (elapsedNanos < thresholdNanos) {
+            return;
+        }
+        slow.increment();
+        SlowQuery query = new SlowQuery(System.currentTimeMillis(), started.database, started.collection, name,
+                started.shape, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                TimeUnit.NANOSECONDS.toMillis(started.waitNanos), documents, failed);
+        logger.log(Level.WARNING, "Slow " + name + " on " + started.collection + " (" + query.getDurationMs()
+                + " ms, pool wait " + query.getCheckoutWaitMs() + " ms, " + documents + " documents): "
+                + started.shape);
+        if (!keep(query) || started.explain == null) {
+            return;
+        }
+        String key = started.database + "." + started.collection + " " + name + " " + started.shape;
+        SlowQuery known;
+        synchronized (plans) {
+            known = plans.get(key);
+        }
+        if (known != null && query.getTimestamp() - known.getTimestamp() < explainIntervalMillis) {
+            query.setPlan(known.getPlan());
+            query.setKeysExamined(known.getKeysExamined());
+            query.setDocsExamined(known.getDocsExamined());
+            return;
+        }
+        synchronized (plans) {
+            plans.put(key, query);
+        }
+        ThreadPoolExecutor executor = explainer;
+        if (executor != null) {
+            executor.execute(() -> explain(query, started));
+        }
+    }
+
+    /**
+     * Adds a query to the slowest ones of the window if it is slow enough.
+     *
+     * @return false if it was not kept.
+     */
+    private boolean keep(SlowQuery query) {
+        synchronized (slowest) {
+            expire(query.getTimestamp());
+            if (slowest.size() < size) {
+                slowest.add(query);
+                return true;
+            }
+            if (slowest.peek().getDurationMs() >= query.getDurationMs()) {
+                return false;
+            }
+            slowest.poll();
+            slowest.add(query);
+            return true;
+        }
+    }
+
+    /**
+     * Drops the queries recorded before the window, so that old outliers do
+     * not hide the current ones. Must be called holding the slowest lock.
+     */
+    private void expire(long now) {
+        slowest.removeIf(query -> now - query.getTimestamp() > windowMillis);
+    }
+
+    private void explain(SlowQuery query, Pending started) {
+        MongoClient current = client;
+        if (current == null) {
+            return;
+        }
+        try {
+            BsonDocument command = new BsonDocument("explain", started.explain)
+                    .append("verbosity", new BsonString("executionStats"));
+            BsonDocument result = current.getDatabase(started.database).runCommand(command, BsonDocument.class);
+            BsonDocument planner = find(result, "queryPlanner");
+            if (planner != null && planner.isDocument("winningPlan")) {
+                BsonDocument winning = planner.getDocument("winningPlan");
+                query.setPlan(describe(winning.isDocument("queryPlan") ? winning.getDocument("queryPlan") : winning));
+            }
+            BsonDocument stats = find(result, "executionStats");
+            if (stats != null) {
+                query.setKeysExamined(longOf(stats.get("totalKeysExamined")));
+                query.setDocsExamined(longOf(stats.get("totalDocsExamined")));
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.FINE, "Error in explain", e);
+            query.setPlan("explain failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copies the fields explain needs from a command, or returns null if the
+     * command cannot be explained as a whole.
+     */
+    private static BsonDocument toExplain(String name, BsonDocument command) {
+        if ("update".equals(name) || "delete".equals(name)) {
+            String field = "update".equals(name) ? "updates" : "deletes";
+            BsonValue statements = command.get(field);
+            if (statements == null || !statements.isArray() || statements.asArray().size() != 1) {
+                return null;
+            }
+            return new BsonDocument(name, command.get(name))
+                    .append(field, new BsonArray(List.of(copy(statements.asArray().get(0)))));
+        }
+        BsonDocument explain = new BsonDocument();
+        for (String field : EXPLAIN_FIELDS.get(name)) {
+            BsonValue value = command.get(field);
+            if (value != null) {
+                explain.append(field, copy(value));
+            }
+        }
+        return explain;
+    }
+
+    /**
+     * Copies a value out of a command document, which is only valid during
+     * its event.
+     */
+    private static BsonValue copy(BsonValue value) {
+        if (value.isDocument()) {
+            return value.asDocument().clone();
+        }
+        if (value.isArray()) {
+            return value.asArray().clone();
+        }
+        return value;
+    }
+
+    private static String collectionOf(String name, BsonDocument command) {
+        BsonValue value = "getMore".equals(name) ? command.get("collection") : command.get(name);
+        return value != null && value.isString() ? value.asString().getValue() : null;
+    }
+
+    private static String shapeOf(String name, BsonDocument command) {
+        switch (name) {
+        case "find":
+            String filter = shape(command.get("filter"));
+            return command.containsKey("sort") ? filter + " sort " + shape(command.get("sort")) : filter;
+        case "aggregate":
+            return shape(command.get("pipeline"));
+        case "count":
+        case "findAndModify":
+            return shape(command.get("query"));
+        case "distinct":
+            return command.getString("key", new BsonString("")).getValue() + " " + shape(command.get("query"));
+        case "update":
+            return shape(firstStatement(command, "updates"));
+        case "delete":
+            return shape(firstStatement(command, "deletes"));
+        default:
+            return "";
+        }
+    }
+
+    private static BsonValue firstStatement(BsonDocument command, String field) {
+        BsonValue statements = command.get(field);
+        if (statements == null || !statements.isArray() || statements.asArray().isEmpty()) {
+            return null;
+        }
+        BsonValue first = statements.asArray().get(0);
+        return first.isDocument() ? first.asDocument().get("q") : null;
+    }
+
+    /**
+     * Renders a filter with every value replaced by "?", keeping the field
+     * names, the operators and the nesting of logical operators.
+     */
+    static String shape(BsonValue value) {
+        StringBuilder builder = new StringBuilder();
+        appendShape(builder, value);
+        return builder.toString();
+    }
+
+    private static void appendShape(StringBuilder builder, BsonValue value) {
+        if (value == null) {
+            builder.append("{}");
+        } else if (value.isDocument()) {
+            builder.append('{');
+            boolean first = true;
+            for (Map.Entry<String, BsonValue> entry : value.asDocument().entrySet()) {
+                builder.append(first ? "" : ", ").append(entry.getKey()).append(": ");
+                appendShape(builder, entry.getValue());
+                first = false;
+            }
+            builder.append('}');
+        } else if (value.isArray() && containsDocuments(value.asArray())) {
+            builder.append('[');
+            boolean first = true;
+            for (BsonValue element : value.asArray()) {
+                builder.append(first ? "" : ", ");
+                appendShape(builder, element);
+                first = false;
+            }
+            builder.append(']');
+        } else {
+            builder.append('?');
+        }
+    }
+
+    private static boolean containsDocuments(BsonArray array) {
+        return !array.isEmpty() && array.get(0).isDocument();
+    }
+
+    private static long documentsOf(BsonDocument response) {
+        try {
+            if (response.isDocument("cursor")) {
+                BsonDocument cursor = response.getDocument("cursor");
+                BsonValue batch = cursor.containsKey("firstBatch") ? cursor.get("firstBatch") : cursor.get("nextBatch");
+                return batch != null && batch.isArray() ? batch.asArray().size() : 0;
+            }
+            if (response.isArray("values")) {
+                return response.getArray("values").size();
+            }
+            if (response.containsKey("n")) {
+                return longOf(response.get("n"));
+            }
+            return response.containsKey("value") && !response.get("value").isNull() ? 1 : 0;
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Finds the first document stored under a key, searching depth first.
+     * Explain nests its output differently for find and for each stage of an
+     * aggregation.
+     */
+    private static BsonDocument find(BsonValue value, String key) {
+        if (value.isDocument()) {
+            BsonDocument document = value.asDocument();
+            if (document.isDocument(key)) {
+                return document.getDocument(key);
+            }
+            for (BsonValue child : document.values()) {
+                BsonDocument found = find(child, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        } else if (value.isArray()) {
+            for (BsonValue child : value.asArray()) {
+                BsonDocument found = find(child, key);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Describes a plan as its chain of stages, e.g. "FETCH > IXSCAN(title_1)".
+     */
+    private static String describe(BsonDocument stage) {
+        StringBuilder builder = new StringBuilder(stage.getString("stage", new BsonString("?")).getValue());
+        if (stage.isString("indexName")) {
+            builder.append('(').append(stage.getString("indexName").getValue()).append(')');
+        }
+        if (stage.isDocument("inputStage")) {
+            builder.append(" > ").append(describe(stage.getDocument("inputStage")));
+        } else if (stage.isArray("inputStages")) {
+            builder.append(" > [");
+            boolean first = true;
+            for (BsonValue input : stage.getArray("inputStages")) {
+                if (input.isDocument()) {
+                    builder.append(first ? "" : ", ").append(describe(input.asDocument()));
+                    first = false;
+                }
+            }
+            builder.append(']');
+        }
+        return builder.toString();
+    }
+
+    private static long longOf(BsonValue value) {
+        return value != null && value.isNumber() ? value.asNumber().longValue() : -1;
+    }
+
+    /**
+     * What is known of a command between its start and its end.
+     */
+    private static final class Pending {
+        private final String database;
+        private final String collection;
+        private final String shape;
+        private final long waitNanos;
+        private final BsonDocument explain;
+
+        Pending(String database, String collection, String shape, long waitNanos, BsonDocument explain) {
+            this.database = database;
+            this.collection = collection;
+            this.shape = shape;
+            this.waitNanos = waitNanos;
+            this.explain = explain;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.movingalong.utils;
+
+import static org.bson.codecs.configuration.CodecRegistries.fromProviders;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import com.movingalong.codecs.EntityCodecs;
+import com.movingalong.entities.Content;
+import com.movingalong.entities.User;
+
+/**
+ * Holds the single MongoDB Reactive Streams client used by the reactive DAOs.
+ * Unlike {@link UtilsDB}, the client is shared by the whole application since
+ * its event loop is meant to serve every request.
+ */
+public final class ReactiveUtilsDB {
+    private static volatile MongoClient mongoClient;
+
+    private ReactiveUtilsDB() {
+    }
+
+    /**
+     * Returns the application database, creating the client on first use.
+     *
+     * @return the reactive MongoDatabase configured with the entity codecs.
+     */
+    public static MongoDatabase getDatabase() {
+        return getClient().getDatabase(AppConfig.getMongoDatabase()).withCodecRegistry(getCodecRegistry());
+    }
+
+    /**
+     * Builds the codec registry used to decode entities on the reactive path.
+     */
+    public static CodecRegistry getCodecRegistry() {
+        if (EntityCodecs.isEnabled()) {
+            return EntityCodecs.getCodecRegistry();
+        }
+        return fromRegistries(MongoClientSettings.getDefaultCodecRegistry(),
+                fromProviders(PojoCodecProvider.builder().register(Content.class, User.class).build()));
+    }
+
+    /**
+     * Closes the shared client, if it was ever created.
+     */
+    public static synchronized void closeClient() {
+        if (mongoClient != null) {
+            mongoClient.close();
+            mongoClient = null;
+        }
+    }
+
+    private static MongoClient getClient() {
+        MongoClient client = mongoClient;
+        if (client == null) {
+            synchronized (ReactiveUtilsDB.class) {
+                client = mongoClient;
+                if (client == null) {
+                    MongoClientSettings settings = MongoClientSettings.builder()
+                            .applyConnectionString(new ConnectionString(AppConfig.getMongoUri()))
+                            .build();
+                    client = MongoClients.create(settings);
+                    mongoClient = client;
+                }
+            }
+        }
+        return client;
+    }
+}
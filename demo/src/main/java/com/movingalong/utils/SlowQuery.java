@@ -0,0 +1,34 @@
+package com.movingalong.utils;
+
+import lombok.Data;
+
+/**
+ * A MongoDB command that took longer than the slow-query threshold, as
+ * recorded by {@link QueryTracer}. The filter shape keeps the field names and
+ * operators of the command but none of its values.
+ */
+@Data
+public class SlowQuery {
+    private final long timestamp;
+    private final String database;
+    private final String collection;
+    private final String command;
+    private final String shape;
+    private final long durationMs;
+
+    /**
+     * The time spent waiting for a pooled connection before the command was
+     * sent, in milliseconds.
+     */
+    private final long checkoutWaitMs;
+    private final long documents;
+    private final boolean failed;
+
+    /**
+     * The winning plan reported by explain, e.g. "FETCH > IXSCAN(title_1)",
+     * or null until it is captured.
+     */
+    private volatile String plan;
+    private volatile long keysExamined = -1;
+    private volatile long docsExamined = -1;
+}
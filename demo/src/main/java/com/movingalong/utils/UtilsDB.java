@@ -1,39 +1,119 @@
 package com.movingalong.utils;
 
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
 import com.mongodb.client.*;
+import com.movingalong.entities.Content;
+import com.movingalong.entities.User;
 
 import dev.morphia.Datastore;
 import dev.morphia.Morphia;
 
+/**
+ * Gives access to the MongoDB datastore configured in {@link AppConfig}.
+ * The client and the datastore are created once and shared by every UtilsDB,
+ * so constructing a DAO costs nothing: the entities are mapped explicitly
+ * instead of by scanning the classpath, and the indexes are ensured once.
+ * The commands of the client are traced by {@link QueryTracer}.
+ */
 public class UtilsDB {
-    private Datastore datastore;
-    private MongoClient mongoClient;
+    private static final Logger logger = Logger.getLogger(UtilsDB.class.getName());
+    private static final long RETRY_MIN_MILLIS = 1000;
+    private static final long RETRY_MAX_MILLIS = AppConfig.getLong("movingalong.mongo.retryMaxSeconds", 30) * 1000;
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static volatile Datastore datastore;
+    private static MongoClient mongoClient;
+    private static volatile long retryAt;
+    private static long retryMillis = RETRY_MIN_MILLIS;
 
+    /**
+     * Closes the shared client. Only called on shutdown, since every UtilsDB
+     * uses the same client; a later getDatastore() connects again.
+     */
     public void closeClient() {
+        lock.lock();
         try {
-            mongoClient.close();
+            if (mongoClient != null) {
+                mongoClient.close();
+            }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            QueryTracer.getInstance().setClient(null);
+            mongoClient = null;
+            datastore = null;
+            retryAt = 0;
+            retryMillis = RETRY_MIN_MILLIS;
+            lock.unlock();
         }
     }
 
+    /**
+     * Returns the shared datastore, connecting on first use. Once connected
+     * the datastore is read without locking. After a failed connection no new
+     * attempt is made for a back-off period that doubles with each failure up
+     * to movingalong.mongo.retryMaxSeconds, and callers arriving while another
+     * one connects do not wait for it; both get null, like a failure.
+     *
+     * @return the datastore, or null if MongoDB is not reachable.
+     */
     public Datastore getDatastore() {
+        Datastore current = datastore;
+        if (current != null) {
+            return current;
+        }
+        if (System.currentTimeMillis() < retryAt || !lock.tryLock()) {
+            return null;
+        }
         try {
-            mongoClient = MongoClients.create("mongodb://localhost:27017");
-            datastore = Morphia.createDatastore(mongoClient, "moving_along");
+            if (datastore != null) {
+                return datastore;
+            }
+            if (System.currentTimeMillis() < retryAt) {
+                return null;
+            }
+            return connect();
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            // Configure the data store
-            datastore.getMapper().mapPackage("com.mongodb.morphia.entities");
-            datastore.ensureIndexes();
+    private static Datastore connect() {
+        try {
+            long start = System.currentTimeMillis();
+            MongoClientSettings.Builder settings = MongoClientSettings.builder()
+                    .applyConnectionString(new ConnectionString(AppConfig.getMongoUri()));
+            QueryTracer tracer = QueryTracer.getInstance();
+            if (tracer.isEnabled()) {
+                settings.addCommandListener(tracer)
+                        .applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(tracer));
+            }
+            mongoClient = MongoClients.create(settings.build());
+            tracer.setClient(mongoClient);
+            Datastore created = Morphia.createDatastore(mongoClient, AppConfig.getMongoDatabase());
 
+            // Configure the data store
+            created.getMapper().map(Content.class, User.class);
+            created.ensureIndexes();
 
-            return datastore;
+            datastore = created;
+            retryMillis = RETRY_MIN_MILLIS;
+            logger.log(Level.INFO, "Datastore initialized in " + (System.currentTimeMillis() - start) + " ms");
+            return created;
         } catch (Exception e) {
-            e.printStackTrace();
-            
-            return null; 
+            logger.log(Level.SEVERE, "Error in getDatastore, retrying in " + retryMillis + " ms", e);
+            if (mongoClient != null) {
+                mongoClient.close();
+                mongoClient = null;
+            }
+            QueryTracer.getInstance().setClient(null);
+            retryAt = System.currentTimeMillis() + retryMillis;
+            retryMillis = Math.min(retryMillis * 2, Math.max(RETRY_MIN_MILLIS, RETRY_MAX_MILLIS));
+            return null;
         }
     }
-
-
 }
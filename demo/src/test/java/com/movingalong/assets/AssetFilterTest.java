@@ -0,0 +1,54 @@
+package com.movingalong.assets;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class AssetFilterTest {
+
+    @Test
+    void acceptsListedCodings() {
+        assertTrue(AssetFilter.accepts("gzip, deflate, br", "br"));
+        assertTrue(AssetFilter.accepts("gzip, deflate, br", "gzip"));
+        assertTrue(AssetFilter.accepts("GZIP", "gzip"));
+        assertTrue(AssetFilter.accepts(" br ", "br"));
+    }
+
+    @Test
+    void rejectsMissingOrUnlistedCodings() {
+        assertFalse(AssetFilter.accepts(null, "gzip"));
+        assertFalse(AssetFilter.accepts("", "gzip"));
+        assertFalse(AssetFilter.accepts("deflate", "gzip"));
+        assertFalse(AssetFilter.accepts("x-gzip", "gzip"));
+        assertFalse(AssetFilter.accepts("gzip", "br"));
+    }
+
+    @Test
+    void honorsQValues() {
+        assertTrue(AssetFilter.accepts("br;q=1.0, gzip;q=0.5", "br"));
+        assertTrue(AssetFilter.accepts("br;q=1.0, gzip;q=0.5", "gzip"));
+        assertTrue(AssetFilter.accepts("gzip; q=0.001", "gzip"));
+        assertTrue(AssetFilter.accepts("gzip;Q=1", "gzip"));
+    }
+
+    @Test
+    void rejectsCodingsWithQZero() {
+        assertFalse(AssetFilter.accepts("br;q=0, gzip", "br"));
+        assertTrue(AssetFilter.accepts("br;q=0, gzip", "gzip"));
+        assertFalse(AssetFilter.accepts("gzip;q=0.000", "gzip"));
+        assertFalse(AssetFilter.accepts("gzip; q=0", "gzip"));
+    }
+
+    @Test
+    void rejectsMalformedQValues() {
+        assertFalse(AssetFilter.accepts("gzip;q=high", "gzip"));
+        assertFalse(AssetFilter.accepts("gzip;q=", "gzip"));
+    }
+
+    @Test
+    void ignoresOtherParameters() {
+        assertTrue(AssetFilter.accepts("gzip;level=9", "gzip"));
+        assertFalse(AssetFilter.accepts("gzip;level=9;q=0", "gzip"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.movingalong.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+class ContentEventsTest {
+
+    @Test
+    void replaysMissedEventsInOrder() {
+        ContentEvents events = publish(new ContentEvents("e1", 4, 10), 3);
+
+        List<ContentEvents.Event> missed = events.missedSince("e1-1");
+        assertEquals(List.of("e1-2", "e1-3"), ids(missed));
+        assertEquals("contentDeleted", missed.get(0).getName());
+    }
+
+    @Test
+    void replaysNothingWhenUpToDate() {
+        ContentEvents events = publish(new ContentEvents("e1", 4, 10), 3);
+
+        assertTrue(events.missedSince("e1-3").isEmpty());
+    }
+
+    @Test
+    void resetsOnEpochMismatch() {
+        ContentEvents events = publish(new ContentEvents("e1", 4, 10), 3);
+
+        assertReset(events.missedSince("e0-1"));
+        assertReset(events.missedSince("e1-9"));
+    }
+
+    @Test
+    void resetsOnMalformedId() {
+        ContentEvents events = publish(new ContentEvents("e1", 4, 10), 3);
+
+        assertReset(events.missedSince("garbage"));
+        assertReset(events.missedSince("e1-x"));
+        assertReset(events.missedSince("-1"));
+    }
+
+    @Test
+    void replaysAcrossTheRingWrapAround() {
+        ContentEvents events = publish(new ContentEvents("e1", 4, 10), 6);
+
+        assertEquals(List.of("e1-3", "e1-4", "e1-5", "e1-6"), ids(events.missedSince("e1-2")));
+    }
+
+    @Test
+    void resetsWhenTheRingWasOverrun() {
+        ContentEvents events = publish(new ContentEvents("e1", 4, 10), 6);
+
+        assertReset(events.missedSince("e1-1"));
+    }
+
+    @Test
+    void resetsWhenMoreWasMissedThanTheClientBuffers() {
+        ContentEvents events = publish(new ContentEvents("e1", 10, 2), 3);
+
+        assertEquals(List.of("e1-2", "e1-3"), ids(events.missedSince("e1-1")));
+        assertReset(events.missedSince("e1-0"));
+    }
+
+    private static ContentEvents publish(ContentEvents events, int count) {
+        for (int i = 0; i < count; i++) {
+            events.contentDeleted(new ObjectId());
+        }
+        return events;
+    }
+
+    private static List<String> ids(List<ContentEvents.Event> events) {
+        List<String> ids = new ArrayList<>();
+        for (ContentEvents.Event event : events) {
+            ids.add(event.getId());
+        }
+        return ids;
+    }
+
+    private static void assertReset(List<ContentEvents.Event> events) {
+        assertEquals(1, events.size());
+        assertEquals("reset", events.get(0).getName());
+        assertNull(events.get(0).getId());
+    }
+}
@@ -0,0 +1,136 @@
+package com.movingalong.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.movingalong.entities.Content;
+
+class FuzzyTitlesTest {
+    private final FuzzyTitles titles = FuzzyTitles.getInstance();
+    private final List<ObjectId> added = new ArrayList<>();
+
+    @AfterEach
+    void removeAdded() {
+        added.forEach(titles::contentDeleted);
+        added.clear();
+    }
+
+    @Test
+    void normalizesCaseAccentsAndPunctuation() {
+        assertEquals("amelie", FuzzyTitles.normalize("Amélie"));
+        assertEquals("star wars episode iv", FuzzyTitles.normalize("  Star Wars: Episode IV!"));
+    }
+
+    @Test
+    void countsInsertionsDeletionsAndSubstitutions() {
+        assertEquals(0, FuzzyTitles.distance("oblivion", "oblivion", 2));
+        assertEquals(1, FuzzyTitles.distance("oblivon", "oblivion", 2));
+        assertEquals(1, FuzzyTitles.distance("oblivionn", "oblivion", 2));
+        assertEquals(1, FuzzyTitles.distance("obluvion", "oblivion", 2));
+        assertEquals(2, FuzzyTitles.distance("oblvon", "oblivion", 2));
+    }
+
+    @Test
+    void countsAdjacentTranspositionAsOneEdit() {
+        assertEquals(1, FuzzyTitles.distance("olbivion", "oblivion", 2));
+        assertEquals(1, FuzzyTitles.distance("oblivoin", "oblivion", 2));
+    }
+
+    @Test
+    void stopsBeyondMaxDistance() {
+        assertEquals(3, FuzzyTitles.distance("alien", "aliens vs predator", 2));
+        assertEquals(2, FuzzyTitles.distance("inception", "xxception", 1));
+        assertEquals(1, FuzzyTitles.distance("up", "us", 0));
+    }
+
+    @Test
+    void findsMisspelledTitle() {
+        ObjectId id = add("Oblivion");
+        add("Obsession");
+
+        List<FuzzyMatch> matches = titles.search("Oblivon", 10);
+        assertEquals(1, matches.size());
+        assertEquals(id.toHexString(), matches.get(0).getId());
+        assertEquals("Oblivion", matches.get(0).getTitle());
+        assertEquals(1, matches.get(0).getDistance());
+    }
+
+    @Test
+    void findsTransposedTitle() {
+        ObjectId id = add("Inception");
+
+        List<FuzzyMatch> matches = titles.search("Incpetion", 10);
+        assertEquals(1, matches.size());
+        assertEquals(id.toHexString(), matches.get(0).getId());
+        assertEquals(1, matches.get(0).getDistance());
+    }
+
+    @Test
+    void findsLongTitleWithEditsNearTheStart() {
+        ObjectId id = add("Eternal Sunshine of the Spotless Mind");
+
+        assertEquals(id.toHexString(), titles.search("Etrenal Sunshine of the Spotless Mind", 10).get(0).getId());
+        assertEquals(id.toHexString(), titles.search("Eternl Sunshine of the Spotless Mind", 10).get(0).getId());
+        assertEquals(id.toHexString(), titles.search("XEternal Sunshine of the Spotless Mind", 10).get(0).getId());
+        assertTrue(titles.search("Eternal Sunshine of the Spotless Mindless", 10).isEmpty());
+    }
+
+    @Test
+    void scalesAllowedDistanceWithQueryLength() {
+        add("Up");
+        add("Heat");
+        add("Amadeus");
+
+        assertTrue(titles.search("Us", 10).isEmpty());
+        assertEquals(1, titles.search("Up", 10).size());
+        assertEquals(1, titles.search("Heal", 10).size());
+        assertTrue(titles.search("Hell", 10).isEmpty());
+        assertEquals(1, titles.search("Amdaeu", 10).size());
+    }
+
+    @Test
+    void ranksCloserMatchesFirstAndHonorsLimit() {
+        add("Heat");
+        add("Heats");
+        add("Meat");
+
+        List<FuzzyMatch> matches = titles.search("Heat", 2);
+        assertEquals(2, matches.size());
+        assertEquals("Heat", matches.get(0).getTitle());
+        assertEquals(0, matches.get(0).getDistance());
+    }
+
+    @Test
+    void forgetsDeletedAndRenamedItems() {
+        ObjectId deleted = add("Vertigo");
+        titles.contentDeleted(deleted);
+        assertTrue(titles.search("Vertigo", 10).isEmpty());
+
+        ObjectId renamed = add("Psycho");
+        Content content = content(renamed, "Rear Window");
+        titles.contentUpdated(renamed, content);
+        assertTrue(titles.search("Psycho", 10).isEmpty());
+        assertEquals(1, titles.search("Rear Window", 10).size());
+    }
+
+    private ObjectId add(String title) {
+        ObjectId id = new ObjectId();
+        titles.contentAdded(content(id, title));
+        added.add(id);
+        return id;
+    }
+
+    private static Content content(ObjectId id, String title) {
+        Content content = new Content();
+        content.setId(id);
+        content.setTitle(title);
+        return content;
+    }
+}
@@ -0,0 +1,134 @@
+package com.movingalong.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import com.movingalong.entities.Content;
+
+class ReleaseSchedulerTest {
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    private final ReleaseScheduler scheduler = new ReleaseScheduler(ZoneOffset.UTC, 2);
+    private final List<List<ObjectId>> batches = new ArrayList<>();
+
+    @Test
+    void schedulesUnreleasedItemsByDay() {
+        Content content = content(TODAY.plusDays(3), "Upcoming");
+        scheduler.contentAdded(content);
+        assertEquals(Set.of(content.getId()), scheduler.getUpcoming().get(TODAY.plusDays(3)));
+
+        scheduler.contentAdded(content(TODAY, Content.RELEASED));
+        scheduler.contentAdded(content(null, "Upcoming"));
+        assertEquals(1, scheduler.getUpcoming().size());
+    }
+
+    @Test
+    void movesAnItemToItsNewDay() {
+        Content content = content(TODAY.plusDays(3), "Upcoming");
+        scheduler.contentAdded(content);
+        content.setReleaseDate(TODAY.plusDays(5));
+        scheduler.contentUpdated(content.getId(), content);
+
+        assertNull(scheduler.getUpcoming().get(TODAY.plusDays(3)));
+        assertEquals(Set.of(content.getId()), scheduler.getUpcoming().get(TODAY.plusDays(5)));
+    }
+
+    @Test
+    void movesAReplacedItemToItsNewId() {
+        Content content = content(TODAY.plusDays(3), "Upcoming");
+        scheduler.contentAdded(content);
+        ObjectId oldId = content.getId();
+        content.setId(new ObjectId());
+        scheduler.contentUpdated(oldId, content);
+
+        assertEquals(Set.of(content.getId()), scheduler.getUpcoming().get(TODAY.plusDays(3)));
+    }
+
+    @Test
+    void unschedulesReleasedAndDeletedItems() {
+        Content released = content(TODAY.plusDays(3), "Upcoming");
+        Content deleted = content(TODAY.plusDays(3), "Upcoming");
+        scheduler.contentAdded(released);
+        scheduler.contentAdded(deleted);
+
+        released.setStatus(Content.RELEASED);
+        scheduler.contentUpdated(released.getId(), released);
+        assertEquals(Set.of(deleted.getId()), scheduler.getUpcoming().get(TODAY.plusDays(3)));
+        scheduler.contentDeleted(deleted.getId());
+        assertTrue(scheduler.getUpcoming().isEmpty());
+    }
+
+    @Test
+    void releasesDueItemsInBatches() {
+        Set<ObjectId> due = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            Content content = content(TODAY.minusDays(i % 2), "Upcoming");
+            scheduler.contentAdded(content);
+            due.add(content.getId());
+        }
+        Content later = content(TODAY.plusDays(1), "Upcoming");
+        scheduler.contentAdded(later);
+
+        scheduler.tick(TODAY, this::release);
+
+        assertEquals(3, batches.size());
+        Set<ObjectId> released = new HashSet<>();
+        for (List<ObjectId> batch : batches) {
+            assertTrue(batch.size() <= 2, "batch of " + batch.size());
+            released.addAll(batch);
+        }
+        assertEquals(due, released);
+        assertEquals(1, scheduler.getUpcoming().size());
+        assertEquals(Set.of(later.getId()), scheduler.getUpcoming().get(TODAY.plusDays(1)));
+    }
+
+    @Test
+    void keepsFailedBatchesScheduled() {
+        Content content = content(TODAY, "Upcoming");
+        scheduler.contentAdded(content);
+
+        scheduler.tick(TODAY, (batch, today) -> -1);
+        assertEquals(Set.of(content.getId()), scheduler.getUpcoming().get(TODAY));
+
+        scheduler.tick(TODAY, this::release);
+        assertTrue(scheduler.getUpcoming().isEmpty());
+    }
+
+    @Test
+    void keepsItemsMovedToALaterDayDuringTheTick() {
+        Content content = content(TODAY, "Upcoming");
+        scheduler.contentAdded(content);
+
+        scheduler.tick(TODAY, (batch, today) -> {
+            content.setReleaseDate(TODAY.plusDays(2));
+            scheduler.contentUpdated(content.getId(), content);
+            return 0;
+        });
+        assertEquals(Set.of(content.getId()), scheduler.getUpcoming().get(TODAY.plusDays(2)));
+    }
+
+    private long release(List<ObjectId> batch, LocalDate today) {
+        batches.add(new ArrayList<>(batch));
+        return batch.size();
+    }
+
+    private static Content content(LocalDate releaseDate, String status) {
+        Content content = new Content();
+        content.setId(new ObjectId());
+        content.setTitle("Title");
+        content.setStatus(status);
+        content.setReleaseDate(releaseDate);
+        return content;
+    }
+}
@@ -0,0 +1,135 @@
+package com.movingalong.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.movingalong.entities.Content;
+
+class SimilarTitlesTest {
+    private final SimilarTitles titles = SimilarTitles.getInstance();
+
+    @AfterEach
+    void clear() {
+        titles.load(new ArrayList<>());
+    }
+
+    @Test
+    void extractsNormalizedFeatures() {
+        ObjectId celebrity = new ObjectId();
+        Content content = content("Heat", "Crime, Drama", celebrity);
+        content.setType(" Movie ");
+        content.setAgeRating("r");
+
+        assertEquals(List.of("genre:crime", "genre:drama", "type:movie", "age:R", "celebrity:" + celebrity.toHexString()),
+                SimilarTitles.featuresOf(content));
+    }
+
+    @Test
+    void addInsertsIntoTheListsOfItsCandidates() {
+        ObjectId celebrity = new ObjectId();
+        Content heat = content("Heat", "Crime", celebrity);
+        Content up = content("Up", "Animation", null);
+        titles.load(List.of(heat, up));
+        assertTrue(titles.getSimilar(heat.getId(), 10).isEmpty());
+
+        Content ronin = content("Ronin", "Crime", celebrity);
+        titles.getModel().add(ronin);
+
+        assertEquals(List.of(ronin.getId()), ids(titles.getSimilar(heat.getId(), 10)));
+        assertEquals(List.of(heat.getId()), ids(titles.getSimilar(ronin.getId(), 10)));
+        assertTrue(titles.getSimilar(up.getId(), 10).isEmpty());
+    }
+
+    @Test
+    void ranksSharedCelebritiesAboveSharedGenres() {
+        ObjectId celebrity = new ObjectId();
+        Content heat = content("Heat", "Crime", celebrity);
+        Content ronin = content("Ronin", "Crime", celebrity);
+        Content fargo = content("Fargo", "Crime", null);
+        titles.load(List.of(heat, fargo));
+
+        titles.getModel().add(ronin);
+
+        List<SimilarContent> similar = titles.getSimilar(heat.getId(), 10);
+        assertEquals(List.of(ronin.getId(), fargo.getId()), ids(similar));
+        assertTrue(similar.get(0).getScore() > similar.get(1).getScore());
+    }
+
+    @Test
+    void removeDropsTheItemFromEveryList() {
+        Content heat = content("Heat", "Crime", null);
+        Content ronin = content("Ronin", "Crime", null);
+        Content fargo = content("Fargo", "Crime", null);
+        titles.load(List.of(heat, ronin, fargo));
+        assertEquals(2, titles.getSimilar(heat.getId(), 10).size());
+
+        titles.getModel().remove(ronin.getId());
+
+        assertNull(titles.getSimilar(ronin.getId(), 10));
+        assertEquals(List.of(fargo.getId()), ids(titles.getSimilar(heat.getId(), 10)));
+        assertEquals(List.of(heat.getId()), ids(titles.getSimilar(fargo.getId(), 10)));
+    }
+
+    @Test
+    void addingAgainReplacesTheItem() {
+        Content heat = content("Heat", "Crime", null);
+        Content ronin = content("Ronin", "Crime", null);
+        Content up = content("Up", "Animation", null);
+        titles.load(List.of(heat, ronin, up));
+
+        ronin.setGenre("Animation");
+        titles.getModel().add(ronin);
+
+        assertEquals(List.of(up.getId()), ids(titles.getSimilar(ronin.getId(), 10)));
+        assertTrue(titles.getSimilar(heat.getId(), 10).isEmpty());
+        assertEquals(1, titles.contents().stream().filter(c -> c.getId().equals(ronin.getId())).count());
+    }
+
+    @Test
+    void keepsAtMostKNeighbours() {
+        ObjectId celebrity = new ObjectId();
+        Content heat = content("Heat", "Crime", celebrity);
+        List<Content> contents = new ArrayList<>(List.of(heat));
+        for (int i = 0; i < titles.getK() + 5; i++) {
+            contents.add(content("Crime " + i, "Crime", null));
+        }
+        titles.load(contents);
+        assertEquals(titles.getK(), titles.getSimilar(heat.getId(), 100).size());
+
+        Content ronin = content("Ronin", "Crime", celebrity);
+        titles.getModel().add(ronin);
+
+        List<SimilarContent> similar = titles.getSimilar(heat.getId(), 100);
+        assertEquals(titles.getK(), similar.size());
+        assertEquals(ronin.getId(), similar.get(0).getObjectId());
+        assertFalse(ids(titles.getSimilar(ronin.getId(), 100)).contains(ronin.getId()));
+    }
+
+    private static List<ObjectId> ids(List<SimilarContent> similar) {
+        List<ObjectId> ids = new ArrayList<>();
+        for (SimilarContent content : similar) {
+            ids.add(content.getObjectId());
+        }
+        return ids;
+    }
+
+    private static Content content(String title, String genre, ObjectId celebrity) {
+        Content content = new Content();
+        content.setId(new ObjectId());
+        content.setTitle(title);
+        content.setGenre(genre);
+        if (celebrity != null) {
+            content.setCelebrities(List.of(celebrity));
+        }
+        return content;
+    }
+}
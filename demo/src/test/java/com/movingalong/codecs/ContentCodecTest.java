@@ -0,0 +1,65 @@
+package com.movingalong.codecs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.Encoder;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import com.movingalong.entities.Content;
+import com.movingalong.entities.User;
+
+class ContentCodecTest {
+
+    @Test
+    void writesMorphiaDiscriminator() {
+        BsonDocument content = encode(new ContentCodec(), new Content());
+        assertEquals("Content", content.getString("_t").getValue());
+
+        BsonDocument user = encode(new UserCodec(), new User());
+        assertEquals("User", user.getString("_t").getValue());
+    }
+
+    @Test
+    void roundTrips() {
+        Content content = new Content();
+        content.setId(new ObjectId());
+        content.setTitle("Oblivion");
+        content.setGenre("Sci-Fi");
+        content.setStatus(Content.RELEASED);
+        content.setReleaseDate(LocalDate.of(2013, 4, 19));
+        content.setScoreRating(7);
+        content.setReviews(List.of(new ObjectId(), new ObjectId()));
+
+        ContentCodec codec = new ContentCodec();
+        BsonDocument document = encode(codec, content);
+        Content decoded = codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+        assertEquals(content, decoded);
+    }
+
+    @Test
+    void omitsNullsAndEmptyLists() {
+        Content content = new Content();
+        content.setTitle("Oblivion");
+        content.setReviews(List.of());
+
+        BsonDocument document = encode(new ContentCodec(), content);
+        assertFalse(document.containsKey("genre"));
+        assertFalse(document.containsKey("reviews"));
+    }
+
+    private static <T> BsonDocument encode(Encoder<T> codec, T value) {
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), value, EncoderContext.builder().build());
+        return document;
+    }
+}
@@ -0,0 +1,74 @@
+package com.movingalong.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveLimitTest {
+    private static final long FAST = 1_000_000;
+    private static final long SLOW = 1_000_000_000;
+
+    @Test
+    void admitsUpToTheLimit() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 10, 100);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+        limit.release(FAST, false);
+        assertEquals(1, limit.getInFlight());
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void growsByAboutOnePerRoundOfFastCalls() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 1, 100, 100);
+        for (int i = 0; i < 10; i++) {
+            limit.tryAcquire();
+            limit.release(FAST, true);
+        }
+        assertEquals(10, limit.getLimit());
+        limit.tryAcquire();
+        limit.release(FAST, true);
+        assertEquals(11, limit.getLimit());
+    }
+
+    @Test
+    void backsOffOnSlowCallsAtMostOncePerTarget() throws InterruptedException {
+        AdaptiveLimit limit = new AdaptiveLimit(100, 1, 100, 200);
+        Thread.sleep(250);
+        limit.tryAcquire();
+        limit.release(SLOW, true);
+        assertEquals(90, limit.getLimit());
+        limit.tryAcquire();
+        limit.release(SLOW, true);
+        assertEquals(90, limit.getLimit());
+    }
+
+    @Test
+    void ignoresCallsThatAreNotSamples() throws InterruptedException {
+        AdaptiveLimit limit = new AdaptiveLimit(100, 1, 100, 1);
+        Thread.sleep(2);
+        limit.tryAcquire();
+        limit.release(SLOW, false);
+        assertEquals(100, limit.getLimit());
+    }
+
+    @Test
+    void staysWithinBounds() throws InterruptedException {
+        AdaptiveLimit limit = new AdaptiveLimit(5, 5, 6, 1);
+        for (int i = 0; i < 100; i++) {
+            limit.tryAcquire();
+            limit.release(FAST, true);
+        }
+        assertEquals(6, limit.getLimit());
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(2);
+            limit.tryAcquire();
+            limit.release(SLOW, true);
+        }
+        assertEquals(5, limit.getLimit());
+    }
+}
@@ -0,0 +1,87 @@
+package com.movingalong.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+    @Test
+    void neverForgetsAddedValues() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i), "user" + i);
+        }
+    }
+
+    @Test
+    void rejectsValuesNeverAdded() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        assertFalse(filter.mightContain("alice"));
+        filter.put("alice");
+        assertTrue(filter.mightContain("alice"));
+        assertFalse(filter.mightContain("Alice"));
+    }
+
+    @Test
+    void keepsFalsePositiveRateNearTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, falsePositives + " false positives");
+    }
+
+    @Test
+    void restoresFromWords() {
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+        for (int i = 0; i < 1_000; i++) {
+            filter.put("user" + i);
+        }
+        BloomFilter restored = new BloomFilter(filter.toWords(), filter.getHashCount());
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(restored.mightContain("user" + i), "user" + i);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(filter.mightContain("other" + i), restored.mightContain("other" + i), "other" + i);
+        }
+        restored.put("alice");
+        assertTrue(restored.mightContain("alice"));
+    }
+
+    @Test
+    void keepsConcurrentPuts() throws InterruptedException {
+        BloomFilter filter = new BloomFilter(40_000, 0.01);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t * 10_000;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    filter.put("user" + (offset + i));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < 40_000; i++) {
+            assertTrue(filter.mightContain("user" + i), "user" + i);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.movingalong.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void coalescesConcurrentCalls() throws Exception {
+        SingleFlight<String, Object> flight = new SingleFlight<>(5000);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+
+        Future<Object> first = executor.submit(() -> flight.execute("key", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            release.await();
+            return result;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        FutureTask<Object> second = new FutureTask<>(() -> flight.execute("key", () -> {
+            calls.incrementAndGet();
+            return new Object();
+        }));
+        awaitJoined(second);
+        release.countDown();
+
+        assertSame(result, first.get(5, TimeUnit.SECONDS));
+        assertSame(result, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void runsAgainOnceCompleted() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(5000);
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals(Integer.valueOf(1), flight.execute("key", calls::incrementAndGet));
+        assertEquals(Integer.valueOf(2), flight.execute("key", calls::incrementAndGet));
+    }
+
+    @Test
+    void sharesFailure() throws Exception {
+        SingleFlight<String, Object> flight = new SingleFlight<>(5000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Object> first = executor.submit(() -> flight.execute("key", () -> {
+            started.countDown();
+            release.await();
+            throw new IOException("down");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        FutureTask<Object> second = new FutureTask<>(() -> flight.execute("key", Object::new));
+        awaitJoined(second);
+        release.countDown();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IOException);
+        failure = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IOException);
+    }
+
+    @Test
+    void timesOutWaitingCallers() throws Exception {
+        SingleFlight<String, Object> flight = new SingleFlight<>(20);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.submit(() -> flight.execute("key", () -> {
+            started.countDown();
+            release.await();
+            return new Object();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        try {
+            assertThrows(TimeoutException.class, () -> flight.execute("key", Object::new));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void coalescesAsyncCalls() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(5000);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletionStage<String> first = flight.executeAsync("key", () -> {
+            calls.incrementAndGet();
+            return pending;
+        });
+        CompletionStage<String> second = flight.executeAsync("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        pending.complete("value");
+
+        assertEquals("value", first.toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertEquals("value", second.toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    /**
+     * Runs a call on its own thread and returns once it waits for the call in
+     * flight, which a call running its own loader never does.
+     */
+    private static void awaitJoined(FutureTask<Object> call) throws InterruptedException {
+        Thread thread = new Thread(call);
+        thread.setDaemon(true);
+        thread.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.TIMED_WAITING) {
+            assertTrue(thread.isAlive() && System.nanoTime() < deadline, "the call did not join the one in flight");
+            Thread.sleep(1);
+        }
+    }
+}
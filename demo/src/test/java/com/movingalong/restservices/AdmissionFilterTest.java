@@ -0,0 +1,54 @@
+package com.movingalong.restservices;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.movingalong.helpers.TokenBucket;
+
+class AdmissionFilterTest {
+
+    @Test
+    void usesTheEntryAddedByTheTrustedProxy() {
+        assertEquals("10.0.0.1", AdmissionFilter.trustedEntry("6.6.6.6, 10.0.0.1"));
+        assertEquals("10.0.0.1", AdmissionFilter.trustedEntry("10.0.0.1"));
+        assertEquals("10.0.0.2", AdmissionFilter.trustedEntry("spoofed,other, 10.0.0.2 "));
+    }
+
+    @Test
+    void classifiesEndpoints() {
+        assertEquals(AdmissionFilter.EndpointClass.BCRYPT, AdmissionFilter.classify("POST", "user/login"));
+        assertEquals(AdmissionFilter.EndpointClass.BCRYPT, AdmissionFilter.classify("POST", "user/add"));
+        assertEquals(AdmissionFilter.EndpointClass.READ, AdmissionFilter.classify("GET", "content/trending"));
+        assertEquals(AdmissionFilter.EndpointClass.WRITE, AdmissionFilter.classify("DELETE", "content/delete/1"));
+    }
+
+    @Test
+    void prunesFullBucketsUpToTheFirstInUse() {
+        Map<String, TokenBucket> buckets = new LinkedHashMap<>(16, 0.75f, true);
+        buckets.put("idle1", new TokenBucket(1, 5));
+        buckets.put("idle2", new TokenBucket(1, 5));
+        TokenBucket used = new TokenBucket(1, 5);
+        used.tryAcquire();
+        buckets.put("used", used);
+        buckets.put("idle3", new TokenBucket(1, 5));
+
+        AdmissionFilter.pruneIdle(buckets);
+        assertEquals(List.of("used", "idle3"), List.copyOf(buckets.keySet()));
+    }
+
+    @Test
+    void prunesAtMostOneBatch() {
+        Map<String, TokenBucket> buckets = new LinkedHashMap<>(16, 0.75f, true);
+        for (int i = 0; i < 40; i++) {
+            buckets.put("idle" + i, new TokenBucket(1, 5));
+        }
+
+        AdmissionFilter.pruneIdle(buckets);
+        assertEquals(24, buckets.size());
+    }
+}
@@ -0,0 +1,75 @@
+package com.movingalong.restservices;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.movingalong.restservices.UserService.UserBean;
+
+import jakarta.ws.rs.core.Response;
+
+class IdempotencyStoreTest {
+    private final IdempotencyStore store = IdempotencyStore.getInstance();
+
+    @Test
+    void fingerprintDependsOnFieldBoundaries() {
+        assertNotEquals(IdempotencyStore.fingerprint("ab", "c"), IdempotencyStore.fingerprint("a", "bc"));
+        assertNotEquals(IdempotencyStore.fingerprint(null, "a"), IdempotencyStore.fingerprint("", "a"));
+        assertEquals(IdempotencyStore.fingerprint("a", "b"), IdempotencyStore.fingerprint("a", "b"));
+    }
+
+    @Test
+    void beanToStringLeavesOutThePassword() {
+        UserBean bean = new UserBean();
+        bean.setUsername("alice");
+        bean.setPassword("hunter2");
+        assertFalse(bean.toString().contains("hunter2"));
+    }
+
+    @Test
+    void replaysTheFirstResponse() {
+        AtomicInteger runs = new AtomicInteger();
+        String key = "replay-" + System.nanoTime();
+        Response first = store.execute("test", key, "f", () -> {
+            runs.incrementAndGet();
+            return Response.status(201).entity("created").build();
+        });
+        Response second = store.execute("test", key, "f", () -> {
+            runs.incrementAndGet();
+            return Response.status(201).entity("created again").build();
+        });
+        assertEquals(1, runs.get());
+        assertEquals(201, first.getStatus());
+        assertEquals("created", second.getEntity());
+        assertEquals("true", second.getHeaderString(IdempotencyStore.REPLAYED_HEADER));
+    }
+
+    @Test
+    void rejectsAKeyReusedForAnotherRequest() {
+        String key = "reuse-" + System.nanoTime();
+        store.execute("test", key, "f", () -> Response.ok().build());
+        assertEquals(422, store.execute("test", key, "g", () -> Response.ok().build()).getStatus());
+    }
+
+    @Test
+    void answersConflictWhileInProgress() {
+        String key = "progress-" + System.nanoTime();
+        int[] nested = new int[1];
+        store.execute("test", key, "f", () -> {
+            nested[0] = store.execute("test", key, "f", () -> Response.ok().build()).getStatus();
+            return Response.ok().build();
+        });
+        assertEquals(409, nested[0]);
+    }
+
+    @Test
+    void forgetsServerErrors() {
+        String key = "error-" + System.nanoTime();
+        store.execute("test", key, "f", () -> Response.serverError().build());
+        assertEquals(200, store.execute("test", key, "f", () -> Response.ok().build()).getStatus());
+    }
+}
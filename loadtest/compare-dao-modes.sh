@@ -0,0 +1,15 @@
+#!/bin/sh
+# Runs the same load test against the sync and the reactive reads, one after
+# the other, and prints the two reports side by side. Options are passed on to
+# LoadTest, e.g. ./compare-dao-modes.sh --rate 2000 --duration 120.
+# Needs "mvn install" in ../demo and the MongoDB configured for the demo.
+set -e
+cd "$(dirname "$0")"
+mkdir -p target
+mvn -q compile
+for mode in sync reactive; do
+    mvn -q exec:java -Dmovingalong.dao.mode="$mode" \
+        -Dexec.args="--label $mode --out target/report-$mode.json $*"
+done
+mvn -q exec:java -Dexec.mainClass=com.movingalong.loadtest.CompareReports \
+    -Dexec.args="target/report-sync.json target/report-reactive.json"
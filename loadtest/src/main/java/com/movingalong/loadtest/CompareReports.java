@@ -0,0 +1,98 @@
+package com.movingalong.loadtest;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+
+/**
+ * Prints the latency percentiles, error rates and achieved rates of two
+ * {@link LoadTest} reports side by side, with the change from the first to
+ * the second. The reports must come from runs with the same seed, rate,
+ * duration and mix, otherwise their numbers are not comparable and nothing is
+ * printed.
+ *
+ * <pre>
+ * baseline.json candidate.json
+ * </pre>
+ */
+public class CompareReports {
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareReports baseline.json candidate.json");
+            System.exit(2);
+        }
+        Report baseline = read(args[0]);
+        Report candidate = read(args[1]);
+        List<String> mismatches = mismatches(baseline, candidate);
+        if (!mismatches.isEmpty()) {
+            System.err.println("The reports are not comparable: " + String.join(", ", mismatches));
+            System.exit(1);
+        }
+
+        System.out.println("baseline:  " + describe(baseline));
+        System.out.println("candidate: " + describe(candidate));
+        System.out.printf("achieved rate %.1f -> %.1f requests/s, dropped %d -> %d%n%n", baseline.getAchievedRate(),
+                candidate.getAchievedRate(), baseline.getDropped(), candidate.getDropped());
+        System.out.printf("%-12s %-8s %12s %12s %9s%n", "operation", "stat", "baseline", "candidate", "change");
+        print("total", baseline.getTotal(), candidate.getTotal());
+        Set<String> operations = new LinkedHashSet<>(baseline.getOperations().keySet());
+        operations.addAll(candidate.getOperations().keySet());
+        for (String operation : operations) {
+            print(operation, baseline.getOperations().get(operation), candidate.getOperations().get(operation));
+        }
+    }
+
+    private static Report read(String file) throws Exception {
+        try (Jsonb jsonb = JsonbBuilder.create();
+                Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            return jsonb.fromJson(reader, Report.class);
+        }
+    }
+
+    private static List<String> mismatches(Report baseline, Report candidate) {
+        List<String> mismatches = new ArrayList<>();
+        if (baseline.getSeed() != candidate.getSeed()) {
+            mismatches.add("seed");
+        }
+        if (baseline.getTargetRate() != candidate.getTargetRate()) {
+            mismatches.add("rate");
+        }
+        if (baseline.getDurationSeconds() != candidate.getDurationSeconds()) {
+            mismatches.add("duration");
+        }
+        if (!Objects.equals(baseline.getMix(), candidate.getMix())) {
+            mismatches.add("mix");
+        }
+        return mismatches;
+    }
+
+    private static String describe(Report report) {
+        return (report.getLabel() == null || report.getLabel().isEmpty() ? "" : report.getLabel() + ", ")
+                + report.getDaoMode() + " reads, started " + report.getStartedAt();
+    }
+
+    private static void print(String operation, OperationStats baseline, OperationStats candidate) {
+        if (baseline == null || candidate == null) {
+            System.out.printf("%-12s only in the %s%n", operation, baseline == null ? "candidate" : "baseline");
+            return;
+        }
+        print(operation, "p50 ms", baseline.getP50Millis(), candidate.getP50Millis());
+        print("", "p99 ms", baseline.getP99Millis(), candidate.getP99Millis());
+        print("", "p99.9 ms", baseline.getP999Millis(), candidate.getP999Millis());
+        print("", "errors %", baseline.getErrorRate() * 100, candidate.getErrorRate() * 100);
+    }
+
+    private static void print(String operation, String stat, double baseline, double candidate) {
+        String change = baseline == 0 ? "" : String.format("%+.1f%%", (candidate - baseline) / baseline * 100);
+        System.out.printf("%-12s %-8s %12.2f %12.2f %9s%n", operation, stat, baseline, candidate, change);
+    }
+}
@@ -0,0 +1,124 @@
+package com.movingalong.loadtest;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.bson.types.ObjectId;
+import org.mindrot.jbcrypt.BCrypt;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.movingalong.entities.Content;
+import com.movingalong.entities.User;
+
+import dev.morphia.Datastore;
+
+/**
+ * The data a load test run works on, written straight to the database before
+ * the run and removed after it.
+ * Every Content item of a run, including those added during the run, has the
+ * run's tag as its genre, and the login user has it as its username, so
+ * cleaning up does not depend on knowing their IDs. Update targets are only
+ * used once because an update replaces the item under a new ID.
+ */
+public class Fixtures {
+    private static final String[] TYPES = { "Movie", "Series" };
+    private static final String[] AGE_RATINGS = { "G", "PG", "PG-13", "R" };
+
+    private final String tag;
+    private final List<ObjectId> readIds = new ArrayList<>();
+    private final List<String> readTitles = new ArrayList<>();
+    private final ConcurrentLinkedQueue<ObjectId> updateIds = new ConcurrentLinkedQueue<>();
+    private final String password;
+
+    /**
+     * Constructor for Fixtures.
+     *
+     * @param tag The tag identifying the run's data.
+     */
+    public Fixtures(String tag) {
+        this.tag = tag;
+        this.password = tag + "-password";
+    }
+
+    /**
+     * Writes the run's data.
+     *
+     * @param datastore     The datastore to write to.
+     * @param catalogSize   The number of Content items read during the run.
+     * @param updateTargets The number of Content items reserved for updates.
+     * @param random        The source of the generated field values.
+     */
+    public void seed(Datastore datastore, int catalogSize, int updateTargets, SplittableRandom random) {
+        for (int i = 0; i < catalogSize; i++) {
+            Content content = newContent(tag + "-read-" + i, random);
+            datastore.save(content);
+            readIds.add(content.getId());
+            readTitles.add(content.getTitle());
+        }
+        for (int i = 0; i < updateTargets; i++) {
+            Content content = newContent(tag + "-update-" + i, random);
+            datastore.save(content);
+            updateIds.add(content.getId());
+        }
+        User user = new User(tag, "2000-01-01", Instant.now().toString(), tag + "@loadtest.invalid",
+                BCrypt.hashpw(password, BCrypt.gensalt()), null);
+        datastore.save(user);
+    }
+
+    /**
+     * Removes every Content item and User of the run.
+     *
+     * @param database The database to clean up.
+     */
+    public void cleanUp(MongoDatabase database) {
+        database.getCollection("contents").deleteMany(Filters.eq("genre", tag));
+        database.getCollection("users").deleteMany(Filters.eq("username", tag));
+    }
+
+    /**
+     * Returns a new, unsaved Content item of the run with random fields.
+     *
+     * @param title  The title of the item.
+     * @param random The source of the field values.
+     */
+    public Content newContent(String title, SplittableRandom random) {
+        return new Content(title, tag, "Generated by the load test", "Released",
+                LocalDate.of(1980, 1, 1).plusDays(random.nextInt(16_000)), null,
+                AGE_RATINGS[random.nextInt(AGE_RATINGS.length)], random.nextInt(101),
+                TYPES[random.nextInt(TYPES.length)]);
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getUsername() {
+        return tag;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public List<ObjectId> getReadIds() {
+        return readIds;
+    }
+
+    public List<String> getReadTitles() {
+        return readTitles;
+    }
+
+    /**
+     * Takes an update target that has not been updated yet.
+     *
+     * @return the ObjectId of the target, or null once all have been used.
+     */
+    public ObjectId takeUpdateId() {
+        return updateIds.poll();
+    }
+}
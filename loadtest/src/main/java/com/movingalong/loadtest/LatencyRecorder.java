@@ -0,0 +1,93 @@
+package com.movingalong.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the latencies and outcomes of the requests of one operation.
+ * Latencies are kept in full so the percentiles are exact; a run at 1k
+ * requests per second for ten minutes needs under 5 MB.
+ */
+public class LatencyRecorder {
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+    private final Map<String, Long> outcomes = new TreeMap<>();
+
+    /**
+     * Records a completed request.
+     *
+     * @param latencyNanos The time from the intended start of the request to
+     *                     its completion.
+     * @param outcome      The HTTP status code, or the exception class name if
+     *                     the request failed without a response.
+     * @param error        Whether the request counts as an error.
+     */
+    public synchronized void record(long latencyNanos, String outcome, boolean error) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (error) {
+            errors++;
+        }
+        outcomes.merge(outcome, 1L, Long::sum);
+    }
+
+    /**
+     * Adds the requests of another recorder to this one.
+     *
+     * @param other The recorder to merge.
+     */
+    public synchronized void merge(LatencyRecorder other) {
+        synchronized (other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, count + other.count);
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+            other.outcomes.forEach((outcome, n) -> outcomes.merge(outcome, n, Long::sum));
+        }
+    }
+
+    /**
+     * Summarizes the recorded requests.
+     *
+     * @return the statistics of the operation, latencies in milliseconds.
+     */
+    public synchronized OperationStats toStats() {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (long latency : sorted) {
+            sum += latency;
+        }
+
+        OperationStats stats = new OperationStats();
+        stats.setCount(count);
+        stats.setErrors(errors);
+        stats.setErrorRate(count == 0 ? 0 : (double) errors / count);
+        stats.setOutcomes(new TreeMap<>(outcomes));
+        stats.setMeanMillis(count == 0 ? 0 : toMillis(sum / count));
+        stats.setP50Millis(toMillis(percentile(sorted, 0.50)));
+        stats.setP90Millis(toMillis(percentile(sorted, 0.90)));
+        stats.setP99Millis(toMillis(percentile(sorted, 0.99)));
+        stats.setP999Millis(toMillis(percentile(sorted, 0.999)));
+        stats.setMaxMillis(count == 0 ? 0 : toMillis(sorted[count - 1]));
+        return stats;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,128 @@
+package com.movingalong.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: requests are started at Poisson-distributed
+ * arrival times of the configured rate, whether or not earlier requests have
+ * completed, so a slow server faces a growing queue just as it would in
+ * production. Latencies are measured from the intended start of each request,
+ * which keeps a stalled generator from hiding the stall (coordinated
+ * omission).
+ */
+public class LoadGenerator {
+    private final HttpClient client;
+    private final Workload workload;
+    private final double rate;
+    private final int maxInFlight;
+    private final SplittableRandom random;
+
+    /**
+     * Constructor for LoadGenerator.
+     *
+     * @param client      The client sending the requests.
+     * @param workload    The operations to replay.
+     * @param rate        The mean number of requests started per second.
+     * @param maxInFlight The number of outstanding requests beyond which new
+     *                    arrivals are dropped instead of sent.
+     * @param random      The source of randomness of the run.
+     */
+    public LoadGenerator(HttpClient client, Workload workload, double rate, int maxInFlight,
+            SplittableRandom random) {
+        this.client = client;
+        this.workload = workload;
+        this.rate = rate;
+        this.maxInFlight = maxInFlight;
+        this.random = random;
+    }
+
+    /**
+     * Generates load for a given time and waits for the outstanding requests.
+     *
+     * @param seconds The length of the phase.
+     * @return the outcome of the phase.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Phase run(int seconds) throws InterruptedException {
+        Phase phase = new Phase(seconds);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long next = start;
+        while (true) {
+            next += (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+            if (next >= end) {
+                break;
+            }
+            long delay;
+            while ((delay = next - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Operation operation = workload.pick(random);
+            HttpRequest request = workload.request(operation, random);
+            if (request == null || !inFlight.tryAcquire()) {
+                phase.dropped.incrementAndGet();
+                continue;
+            }
+            long intended = next;
+            LatencyRecorder recorder = phase.recorders.get(operation);
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                long latency = System.nanoTime() - intended;
+                if (error != null) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    recorder.record(latency, cause.getClass().getSimpleName(), true);
+                } else {
+                    recorder.record(latency, Integer.toString(response.statusCode()),
+                            response.statusCode() >= 400);
+                }
+                inFlight.release();
+            });
+        }
+        if (!inFlight.tryAcquire(maxInFlight, 60, TimeUnit.SECONDS)) {
+            System.err.println("Requests still outstanding at the end of the phase are not counted");
+        }
+        return phase;
+    }
+
+    /**
+     * The requests of one phase of a run, e.g. the warmup or the measurement.
+     */
+    public static class Phase {
+        private final int seconds;
+        private final Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+        private final AtomicLong dropped = new AtomicLong();
+
+        Phase(int seconds) {
+            this.seconds = seconds;
+            for (Operation operation : Operation.values()) {
+                recorders.put(operation, new LatencyRecorder());
+            }
+        }
+
+        public int getSeconds() {
+            return seconds;
+        }
+
+        public Map<Operation, LatencyRecorder> getRecorders() {
+            return recorders;
+        }
+
+        /**
+         * Returns the number of arrivals that were not sent, either because
+         * too many requests were outstanding or because no update target was
+         * left.
+         */
+        public long getDropped() {
+            return dropped.get();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.movingalong.loadtest;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.media.multipart.MultiPartFeature;
+import org.glassfish.jersey.server.ResourceConfig;
+
+import com.movingalong.restservices.RestActivator;
+import com.movingalong.utils.AppConfig;
+import com.movingalong.utils.AppContextListener;
+import com.movingalong.utils.UtilsDB;
+
+import dev.morphia.Datastore;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbConfig;
+
+/**
+ * Replays a configurable mix of REST API traffic at a fixed arrival rate and
+ * writes latency percentiles and error rates as JSON, so that runs of
+ * different builds can be compared.
+ * Unless --target points to a running server, the REST services run in an
+ * embedded Grizzly server with the same background services as the web
+ * application. Either way the run's data is written to and removed from the
+ * database configured in {@link AppConfig}, which must be the one the server
+ * uses. Passing -Dmovingalong.dao.mode=reactive measures the reactive reads
+ * instead of the default ones; compare-dao-modes.sh runs both with the same
+ * options and prints the two reports side by side with {@link CompareReports}.
+ * The per-client rate limits are off in the embedded
+ * server unless movingalong.ratelimit.enabled is set; a --target server needs
+ * them raised or disabled.
+ *
+ * <pre>
+ * [--target http://host:8080/demo/rest/] [--port 8090] [--rate 1000] [--duration 60] [--warmup 10]
+ * [--mix get=60,getByTitle=20,add=5,update=5,login=10] [--seed 42] [--catalog 1000]
+ * [--max-in-flight 2000] [--timeout 30] [--label name] [--out report.json] [--keep-data false]
+ * </pre>
+ */
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        double rate = Double.parseDouble(options.getOrDefault("rate", "1000"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        Map<Operation, Double> mix = Workload.parseMix(
+                options.getOrDefault("mix", "get=60,getByTitle=20,add=5,update=5,login=10"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int catalog = Integer.parseInt(options.getOrDefault("catalog", "1000"));
+        int maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "2000"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "30")));
+
+        UtilsDB utilsDB = new UtilsDB();
+        Datastore datastore = utilsDB.getDatastore();
+        if (datastore == null) {
+            System.err.println("Could not connect to the database");
+            System.exit(1);
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        Fixtures fixtures = new Fixtures("loadtest-" + seed + "-" + System.currentTimeMillis());
+        double updateShare = mix.getOrDefault(Operation.UPDATE, 0.0)
+                / mix.values().stream().mapToDouble(Double::doubleValue).sum();
+        int updateTargets = (int) Math.ceil(rate * (warmup + duration) * updateShare * 1.2) + 100;
+
+        HttpServer server = null;
+        AppContextListener services = null;
+        try {
+            System.err.println("Seeding " + catalog + " items and " + updateTargets + " update targets as "
+                    + fixtures.getTag());
+            fixtures.seed(datastore, catalog, updateTargets, random.split());
+
+            String target = options.get("target");
+            if (target == null) {
+                int port = Integer.parseInt(options.getOrDefault("port", "8090"));
+                target = "http://localhost:" + port + "/rest/";
+                // All traffic comes from one client, which the per-client limits would throttle
+                if (System.getProperty("movingalong.ratelimit.enabled") == null) {
+                    System.setProperty("movingalong.ratelimit.enabled", "false");
+                }
+                services = new AppContextListener();
+                services.contextInitialized(null);
+                ResourceConfig config = ResourceConfig.forApplication(new RestActivator())
+                        .register(MultiPartFeature.class);
+                server = GrizzlyHttpServerFactory.createHttpServer(URI.create(target), config);
+            }
+            URI base = URI.create(target.endsWith("/") ? target : target + "/");
+
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(timeout)
+                    .build();
+            Workload workload = new Workload(base, fixtures, mix, timeout);
+            LoadGenerator generator = new LoadGenerator(client, workload, rate, maxInFlight, random.split());
+
+            String startedAt = Instant.now().toString();
+            if (warmup > 0) {
+                System.err.println("Warming up for " + warmup + " s at " + rate + " requests/s");
+                generator.run(warmup);
+            }
+            System.err.println("Measuring for " + duration + " s at " + rate + " requests/s");
+            LoadGenerator.Phase phase = generator.run(duration);
+
+            Report report = toReport(phase, options.getOrDefault("label", ""), startedAt, base.toString(),
+                    rate, seed, warmup, mix);
+            writeReport(report, options.get("out"));
+        } finally {
+            if (server != null) {
+                server.shutdownNow();
+            }
+            if (!Boolean.parseBoolean(options.getOrDefault("keep-data", "false"))) {
+                fixtures.cleanUp(datastore.getDatabase());
+            }
+            // The services share the datastore's client and close it
+            if (services != null) {
+                services.contextDestroyed(null);
+            }
+            utilsDB.closeClient();
+        }
+    }
+
+    private static Report toReport(LoadGenerator.Phase phase, String label, String startedAt, String target,
+            double rate, long seed, int warmup, Map<Operation, Double> mix) {
+        LatencyRecorder total = new LatencyRecorder();
+        Map<String, OperationStats> operations = new LinkedHashMap<>();
+        for (Map.Entry<Operation, LatencyRecorder> entry : phase.getRecorders().entrySet()) {
+            if (mix.containsKey(entry.getKey())) {
+                operations.put(entry.getKey().getKey(), entry.getValue().toStats());
+                total.merge(entry.getValue());
+            }
+        }
+        Map<String, Double> weights = new LinkedHashMap<>();
+        mix.forEach((operation, weight) -> weights.put(operation.getKey(), weight));
+
+        Report report = new Report();
+        report.setLabel(label);
+        report.setStartedAt(startedAt);
+        report.setTarget(target);
+        report.setDaoMode(AppConfig.getString(AppConfig.DAO_MODE, "sync"));
+        report.setTargetRate(rate);
+        report.setSeed(seed);
+        report.setWarmupSeconds(warmup);
+        report.setDurationSeconds(phase.getSeconds());
+        report.setMix(weights);
+        report.setTotal(total.toStats());
+        report.setAchievedRate((double) report.getTotal().getCount() / phase.getSeconds());
+        report.setDropped(phase.getDropped());
+        report.setOperations(operations);
+        return report;
+    }
+
+    private static void writeReport(Report report, String out) throws Exception {
+        try (Jsonb jsonb = JsonbBuilder.create(new JsonbConfig().withFormatting(true))) {
+            if (out == null) {
+                System.out.println(jsonb.toJson(report));
+                return;
+            }
+            try (OutputStream stream = Files.newOutputStream(Paths.get(out));
+                    Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8)) {
+                jsonb.toJson(report, writer);
+            }
+            System.err.println("Report written to " + out);
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
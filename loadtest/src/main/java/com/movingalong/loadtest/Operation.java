@@ -0,0 +1,40 @@
+package com.movingalong.loadtest;
+
+/**
+ * The kinds of requests the load generator replays.
+ */
+public enum Operation {
+    GET("get"),
+    GET_BY_TITLE("getByTitle"),
+    ADD("add"),
+    UPDATE("update"),
+    LOGIN("login");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Returns the name used for the operation in --mix and in the report.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Looks up an operation by its --mix name.
+     *
+     * @param key The name of the operation.
+     * @return the matching Operation.
+     */
+    public static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + key);
+    }
+}
@@ -0,0 +1,23 @@
+package com.movingalong.loadtest;
+
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Latency percentiles and error counts of one operation, as written to the
+ * report.
+ */
+@Data
+public class OperationStats {
+    private long count;
+    private long errors;
+    private double errorRate;
+    private Map<String, Long> outcomes;
+    private double meanMillis;
+    private double p50Millis;
+    private double p90Millis;
+    private double p99Millis;
+    private double p999Millis;
+    private double maxMillis;
+}
@@ -0,0 +1,28 @@
+package com.movingalong.loadtest;
+
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * The machine-readable result of a load test run. The configuration is
+ * included so that reports of different builds can be checked for
+ * comparability before their numbers are.
+ */
+@Data
+public class Report {
+    private String label;
+    private String startedAt;
+    private String target;
+    private String daoMode;
+    private double targetRate;
+    private long seed;
+    private int warmupSeconds;
+    private int durationSeconds;
+    private Map<String, Double> mix;
+
+    private double achievedRate;
+    private long dropped;
+    private OperationStats total;
+    private Map<String, OperationStats> operations;
+}
@@ -0,0 +1,168 @@
+package com.movingalong.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.types.ObjectId;
+
+import com.movingalong.entities.Content;
+
+/**
+ * Turns a weighted mix of operations into concrete HTTP requests against the
+ * REST API, using the run's {@link Fixtures} as targets.
+ */
+public class Workload {
+    private static final String BOUNDARY = "movingalong-loadtest-boundary";
+
+    private final URI base;
+    private final Fixtures fixtures;
+    private final Duration timeout;
+    private final Operation[] operations;
+    private final double[] cumulative;
+    private final AtomicLong added = new AtomicLong();
+
+    /**
+     * Constructor for Workload.
+     *
+     * @param base     The root of the REST API, ending with "/rest/".
+     * @param fixtures The data of the run.
+     * @param mix      The relative weight of each operation.
+     * @param timeout  The timeout of each request.
+     */
+    public Workload(URI base, Fixtures fixtures, Map<Operation, Double> mix, Duration timeout) {
+        this.base = base;
+        this.fixtures = fixtures;
+        this.timeout = timeout;
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulative = new double[operations.length];
+        double total = mix.values().stream().mapToDouble(Double::doubleValue).sum();
+        double sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += mix.get(operations[i]) / total;
+            cumulative[i] = sum;
+        }
+    }
+
+    /**
+     * Parses a mix such as "get=60,getByTitle=20,add=5,update=5,login=10".
+     *
+     * @param value The mix to parse.
+     * @return the weight of each operation, in the given order.
+     */
+    public static Map<Operation, Double> parseMix(String value) {
+        Map<Operation, Double> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + part);
+            }
+            double weight = Double.parseDouble(pair[1]);
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight: " + part);
+            }
+            if (weight > 0) {
+                mix.put(Operation.fromKey(pair[0]), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operation");
+        }
+        return mix;
+    }
+
+    /**
+     * Picks the next operation according to the mix.
+     *
+     * @param random The source of randomness of the run.
+     */
+    public Operation pick(SplittableRandom random) {
+        double value = random.nextDouble();
+        for (int i = 0; i < operations.length - 1; i++) {
+            if (value < cumulative[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    /**
+     * Builds the request of an operation.
+     *
+     * @param operation The operation to perform.
+     * @param random    The source of randomness of the run.
+     * @return the request, or null if the operation has no target left.
+     */
+    public HttpRequest request(Operation operation, SplittableRandom random) {
+        switch (operation) {
+            case GET: {
+                ObjectId id = fixtures.getReadIds().get(random.nextInt(fixtures.getReadIds().size()));
+                return get("content/get/" + id.toHexString());
+            }
+            case GET_BY_TITLE: {
+                String title = fixtures.getReadTitles().get(random.nextInt(fixtures.getReadTitles().size()));
+                return get("content/getByTitle/" + URLEncoder.encode(title, StandardCharsets.UTF_8)
+                        .replace("+", "%20"));
+            }
+            case ADD: {
+                Content content = fixtures.newContent(fixtures.getTag() + "-add-" + added.incrementAndGet(), random);
+                return post("content/add", contentForm(content));
+            }
+            case UPDATE: {
+                ObjectId id = fixtures.takeUpdateId();
+                if (id == null) {
+                    return null;
+                }
+                Content content = fixtures.newContent(fixtures.getTag() + "-updated-" + id.toHexString(), random);
+                return post("content/update/" + id.toHexString(), contentForm(content));
+            }
+            case LOGIN: {
+                Map<String, String> form = new LinkedHashMap<>();
+                form.put("username", fixtures.getUsername());
+                form.put("password", fixtures.getPassword());
+                return post("user/login", form);
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + operation);
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(base.resolve(path)).timeout(timeout).GET().build();
+    }
+
+    private HttpRequest post(String path, Map<String, String> form) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .timeout(timeout)
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofString(multipart(form), StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private static Map<String, String> contentForm(Content content) {
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("title", content.getTitle());
+        form.put("genre", content.getGenre());
+        form.put("description", content.getDescription());
+        form.put("status", content.getStatus());
+        form.put("releaseDate", content.getReleaseDate().toString());
+        form.put("ageRating", content.getAgeRating());
+        form.put("scoreRating", content.getScoreRating().toString());
+        form.put("type", content.getType());
+        return form;
+    }
+
+    private static String multipart(Map<String, String> form) {
+        StringBuilder body = new StringBuilder(512);
+        form.forEach((name, value) -> body.append("--").append(BOUNDARY).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n\r\n")
+                .append(value).append("\r\n"));
+        return body.append("--").append(BOUNDARY).append("--\r\n").toString();
+    }
+}